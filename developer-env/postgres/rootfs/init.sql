@@ -5,3 +5,102 @@
 --     data jsonb,
 --     CONSTRAINT sor_data_github_repositories_pk PRIMARY KEY (account, key)
 -- );
+
+CREATE TABLE webhook_deliveries (
+    id bigserial,
+    event_type varchar(64) NOT NULL,
+    payload text NOT NULL,
+    partition_id integer NOT NULL DEFAULT 0,
+    received_at timestamp with time zone NOT NULL DEFAULT now(),
+    available_at timestamp with time zone NOT NULL DEFAULT now(),
+    claimed_at timestamp with time zone,
+    claimed_by varchar(255),
+    lease_until timestamp with time zone,
+    attempts integer NOT NULL DEFAULT 0,
+    CONSTRAINT webhook_deliveries_pk PRIMARY KEY (id)
+);
+
+CREATE INDEX webhook_deliveries_pending_idx ON webhook_deliveries (available_at, id) WHERE claimed_at IS NULL;
+CREATE INDEX webhook_deliveries_claimed_idx ON webhook_deliveries (lease_until) WHERE claimed_at IS NOT NULL;
+
+-- Deliveries given up on after webhook.queue.max.attempts, kept with their last error until they are replayed.
+CREATE TABLE webhook_dead_letters (
+    id bigserial,
+    event_type varchar(64) NOT NULL,
+    payload text NOT NULL,
+    error text,
+    attempts integer NOT NULL DEFAULT 0,
+    failed_at timestamp with time zone NOT NULL DEFAULT now(),
+    replay_attempts integer NOT NULL DEFAULT 0,
+    next_attempt_at timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT webhook_dead_letters_pk PRIMARY KEY (id)
+);
+
+CREATE INDEX webhook_dead_letters_next_attempt_idx ON webhook_dead_letters (next_attempt_at, id);
+
+-- X-GitHub-Delivery ids accepted within the dedup window, so redeliveries of the same event are not queued twice.
+CREATE TABLE webhook_delivery_ids (
+    delivery_id varchar(64),
+    received_at timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT webhook_delivery_ids_pk PRIMARY KEY (delivery_id)
+);
+
+CREATE INDEX webhook_delivery_ids_received_idx ON webhook_delivery_ids (received_at);
+
+-- Nodes draining webhook_deliveries, and which partition of the deliveries each node holds a lease on. A partition
+-- is only ever drained by one node at a time, so deliveries for the same issue are never processed concurrently.
+CREATE TABLE webhook_nodes (
+    node_id varchar(255),
+    heartbeat_at timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT webhook_nodes_pk PRIMARY KEY (node_id)
+);
+
+CREATE TABLE webhook_partitions (
+    partition_id integer,
+    owner varchar(255),
+    lease_until timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT webhook_partitions_pk PRIMARY KEY (partition_id)
+);
+
+CREATE TABLE github_issue_ids (
+    account varchar(40),
+    key character varying(2048),
+    id varchar(255) NOT NULL,
+    content_hash bigint,
+    CONSTRAINT github_issue_ids_pk PRIMARY KEY (account, key)
+);
+
+CREATE TABLE backfill_checkpoints (
+    name varchar(255),
+    source text NOT NULL,
+    next_index bigint NOT NULL,
+    updated_at timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT backfill_checkpoints_pk PRIMARY KEY (name)
+);
+
+-- Last installation config loaded from SDM, restored on startup so the first deliveries need not wait for SDM.
+CREATE TABLE config_snapshots (
+    app_id varchar(40),
+    data jsonb NOT NULL,
+    saved_at timestamp with time zone NOT NULL DEFAULT now(),
+    CONSTRAINT config_snapshots_pk PRIMARY KEY (app_id)
+);
+
+-- Local copy of the mapped issues sent to SDM. Spread over hash partitions by account so one large installation's
+-- backfill or replay only touches its own partition's indexes.
+CREATE TABLE sor_data_github_issues (
+    account varchar(40),
+    key character varying(2048),
+    ts timestamp with time zone NOT NULL,
+    data jsonb NOT NULL,
+    CONSTRAINT sor_data_github_issues_pk PRIMARY KEY (account, key)
+) PARTITION BY HASH (account);
+
+CREATE TABLE sor_data_github_issues_p0 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 0);
+CREATE TABLE sor_data_github_issues_p1 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 1);
+CREATE TABLE sor_data_github_issues_p2 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 2);
+CREATE TABLE sor_data_github_issues_p3 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 3);
+CREATE TABLE sor_data_github_issues_p4 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 4);
+CREATE TABLE sor_data_github_issues_p5 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 5);
+CREATE TABLE sor_data_github_issues_p6 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 6);
+CREATE TABLE sor_data_github_issues_p7 PARTITION OF sor_data_github_issues FOR VALUES WITH (MODULUS 8, REMAINDER 7);
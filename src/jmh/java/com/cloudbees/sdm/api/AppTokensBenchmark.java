@@ -0,0 +1,62 @@
+package com.cloudbees.sdm.api;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ES256 signing of the app JWT and claim parsing of cached tokens.
+ *
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="AppTokensBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppTokensBenchmark {
+
+    private AppTokens appTokens;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        String privateKey;
+        try (InputStream is = AppTokensBenchmark.class
+                .getResourceAsStream("/org/acme/github/issues/sdm-app-private-key.pem")) {
+            privateKey = IOUtils.toString(is, StandardCharsets.US_ASCII);
+        }
+        appTokens = new AppTokens("http://localhost", privateKey, "24");
+        token = appTokens.signAppAccessToken();
+    }
+
+    @TearDown
+    public void tearDown() {
+        appTokens.close();
+    }
+
+    @Benchmark
+    public String signAppAccessToken() throws Exception {
+        return appTokens.signAppAccessToken();
+    }
+
+    @Benchmark
+    public long parseAccessToken() {
+        return new AppTokens.AccessToken(token).getExpiresAt();
+    }
+}
@@ -0,0 +1,75 @@
+package org.acme.github.issues.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Account lookup by installation id, as done for every delivery. {@code streamScan} is the linear scan the webhook
+ * resource used before the registry, kept as a baseline.
+ *
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="InstallationsBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstallationsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    int installationCount;
+
+    private Map<String, AppConfig> configs;
+    private Installations installations;
+    private int[] lookups;
+    private int next;
+
+    @Setup
+    public void setup() {
+        configs = new HashMap<>();
+        for (int i = 0; i < installationCount; i++) {
+            configs.put("account-" + i, new AppConfig("github-" + i, 4_000_000 + i * 13));
+        }
+        installations = new Installations(configs);
+
+        lookups = new int[1024];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = 4_000_000 + (i * 7919 % installationCount) * 13;
+        }
+    }
+
+    @Benchmark
+    public String registry() {
+        return installations.getAccount(nextInstallationId());
+    }
+
+    @Benchmark
+    public Optional<String> streamScan() {
+        Integer installationId = nextInstallationId();
+        return configs.entrySet().stream()
+                .filter(e -> e.getValue().getInstallationId().equals(installationId))
+                .findFirst()
+                .map(Map.Entry::getKey);
+    }
+
+    private int nextInstallationId() {
+        next = (next + 1) & (lookups.length - 1);
+        return lookups[next];
+    }
+}
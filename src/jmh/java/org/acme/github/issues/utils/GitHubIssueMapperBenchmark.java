@@ -0,0 +1,114 @@
+package org.acme.github.issues.utils;
+
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.acme.github.issues.model.IssueEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping and keying of {@code issues} payloads, from the raw body as stored in the webhook queue.
+ *
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="GitHubIssueMapperBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitHubIssueMapperBenchmark {
+
+    @Param({"200", "20000", "200000"})
+    int bodyLength;
+
+    @Param({"1", "25"})
+    int assigneeCount;
+
+    private String rawPayload;
+    private JsonObject payload;
+    private IssueEvent event;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonObject fixture;
+        try (JsonReader reader = Json.createReader(new InputStreamReader(
+                GitHubIssueMapperBenchmark.class.getResourceAsStream("issue-edited.json"), StandardCharsets.UTF_8))) {
+            fixture = reader.readObject();
+        }
+
+        JsonObject issue = fixture.getJsonObject("issue");
+        JsonObject assignee = issue.getJsonArray("assignees").getJsonObject(0);
+        JsonArrayBuilder assignees = Json.createArrayBuilder();
+        for (int i = 0; i < assigneeCount; i++) {
+            assignees.add(Json.createObjectBuilder(assignee).add("id", 2000 + i).add("node_id", "MDQ6VXNlcj" + i));
+        }
+        StringBuilder body = new StringBuilder(bodyLength);
+        while (body.length() < bodyLength) {
+            body.append(issue.getString("body"));
+        }
+        body.setLength(bodyLength);
+
+        payload = Json.createObjectBuilder(fixture)
+                .add("issue", Json.createObjectBuilder(issue)
+                        .add("assignees", assignees)
+                        .add("body", body.toString()))
+                .build();
+        rawPayload = payload.toString();
+        event = GitHubIssueExtractor.extract(new StringReader(rawPayload));
+    }
+
+    @Benchmark
+    public JsonObject parseAndMapTree() {
+        try (JsonReader reader = Json.createReader(new StringReader(rawPayload))) {
+            return TreeIssueMapping.mapV3Issue(reader.readObject());
+        }
+    }
+
+    @Benchmark
+    public JsonObject extractAndMapStreaming() {
+        return GitHubIssueMapper.mapV3Issue(GitHubIssueExtractor.extract(new StringReader(rawPayload)));
+    }
+
+    @Benchmark
+    public IssueEvent extractStreaming() {
+        return GitHubIssueExtractor.extract(new StringReader(rawPayload));
+    }
+
+    @Benchmark
+    public JsonObject mapTree() {
+        return TreeIssueMapping.mapV3Issue(payload);
+    }
+
+    @Benchmark
+    public JsonObject mapEvent() {
+        return GitHubIssueMapper.mapV3Issue(event);
+    }
+
+    @Benchmark
+    public String buildKeyTree() {
+        return TreeIssueMapping.buildV3Key(payload);
+    }
+
+    @Benchmark
+    public String buildKeyEvent() {
+        return GitHubIssueMapper.buildV3Key(event);
+    }
+}
@@ -0,0 +1,145 @@
+package org.acme.github.issues;
+
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.configuration.supplier.AgroalDataSourceConfigurationSupplier;
+import io.agroal.api.security.NamePrincipal;
+import io.agroal.api.security.SimplePassword;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.acme.github.issues.AccountScheduler.Priority;
+import org.acme.github.issues.dao.DeadLetterDao;
+import org.acme.github.issues.dao.WebhookDeliveryDao;
+import org.acme.github.issues.loadtest.Delivery;
+import org.acme.github.issues.loadtest.DeliveryCorpus;
+import org.acme.github.issues.model.ReplayStatus;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+
+/**
+ * Fills the dead letters as an SDM outage would, then replays them against a simulated SDM that is still flaky for a
+ * while after coming back, and reports how long the catch-up took and the highest request rate and concurrency SDM
+ * saw.
+ *
+ * <pre>
+ * docker-compose up -d postgres
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.main=org.acme.github.issues.DeadLetterReplayLoadTest \
+ *     -Dloadtest.args="jdbc:postgresql://localhost:5432/docker 5000 200 50"
+ * </pre>
+ *
+ * Arguments are the JDBC URL, the number of dead letters, the replay rate and concurrency.
+ */
+public class DeadLetterReplayLoadTest {
+    private static final long LATENCY_MILLIS = 80;
+    private static final long FLAKY_MILLIS = 5000;
+    private static final double FLAKY_ERROR_RATE = 0.3;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/docker";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 200;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+
+        AgroalDataSource dataSource = AgroalDataSource.from(new AgroalDataSourceConfigurationSupplier()
+                .connectionPoolConfiguration(pool -> pool
+                        .maxSize(20)
+                        .connectionFactoryConfiguration(factory -> factory
+                                .jdbcUrl(url)
+                                .principal(new NamePrincipal("docker"))
+                                .credential(new SimplePassword("docker")))));
+        Jdbi jdbi = Jdbi.create(dataSource);
+        jdbi.installPlugin(new SqlObjectPlugin());
+        jdbi.useHandle(handle -> handle.execute("TRUNCATE webhook_deliveries, webhook_dead_letters"));
+
+        // what the queue leaves behind after an outage
+        WebhookDeliveryDao deliveries = jdbi.onDemand(WebhookDeliveryDao.class);
+        DeadLetterDao deadLetters = jdbi.onDemand(DeadLetterDao.class);
+        List<Delivery> corpus = DeliveryCorpus.generate(count, count, 20, 7);
+        for (Delivery delivery : corpus) {
+            long id = deliveries.insert(delivery.getEventType(), delivery.getPayload(), 0);
+            deadLetters.moveDelivery(id, "javax.ws.rs.ServiceUnavailableException: HTTP 503 Service Unavailable");
+        }
+
+        ScheduledExecutorService sdm = Executors.newScheduledThreadPool(4);
+        SimulatedSdm processor = new SimulatedSdm(sdm, System.nanoTime());
+        DeadLetterReplayer replayer = new DeadLetterReplayer();
+        replayer.maxPerSecond = rate;
+        replayer.maxInFlight = concurrency;
+        replayer.maxAttempts = 5;
+        replayer.backoffMillis = 500;
+        replayer.leaseMillis = 60000;
+        replayer.pollMillis = 100;
+        replayer.jdbi = jdbi;
+        replayer.webhookProcessor = processor;
+        replayer.init();
+
+        long start = System.nanoTime();
+        replayer.start(null, null);
+        ReplayStatus status = replayer.status();
+        while ("running".equals(status.getState())) {
+            Thread.sleep(100);
+            status = replayer.status();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Replayed %d dead letters in %.1fs: %d applied, %d failed attempts, %d left%n",
+                count, seconds, status.getApplied(), status.getFailed(), status.getRemaining());
+        System.out.printf("SDM saw at most %d requests in one second (limit %.0f) and %d at once (limit %d)%n",
+                processor.peakPerSecond(), rate, processor.peakConcurrent.get(), concurrency);
+        sdm.shutdownNow();
+        dataSource.close();
+    }
+
+    /**
+     * Answers after a fixed latency, failing part of the requests for a while after the start as a recovering SDM
+     * might. Tracks the busiest second and the most requests open at once.
+     */
+    private static class SimulatedSdm extends WebhookProcessor {
+        private final ScheduledExecutorService scheduler;
+        private final long startNanos;
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger peakConcurrent = new AtomicInteger();
+        private final LongAdder[] perSecond = new LongAdder[3600];
+
+        private SimulatedSdm(ScheduledExecutorService scheduler, long startNanos) {
+            this.scheduler = scheduler;
+            this.startNanos = startNanos;
+            for (int i = 0; i < perSecond.length; i++) {
+                perSecond[i] = new LongAdder();
+            }
+        }
+
+        @Override
+        public CompletableFuture<Void> process(String eventType, String rawPayload, Priority priority) {
+            long elapsed = System.nanoTime() - startNanos;
+            perSecond[(int) TimeUnit.NANOSECONDS.toSeconds(elapsed)].increment();
+            peakConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+
+            boolean fail = TimeUnit.NANOSECONDS.toMillis(elapsed) < FLAKY_MILLIS
+                    && ThreadLocalRandom.current().nextDouble() < FLAKY_ERROR_RATE;
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                concurrent.decrementAndGet();
+                if (fail) {
+                    result.completeExceptionally(new IllegalStateException("HTTP 503 Service Unavailable"));
+                } else {
+                    result.complete(null);
+                }
+            }, LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        private long peakPerSecond() {
+            long peak = 0;
+            for (LongAdder second : perSecond) {
+                peak = Math.max(peak, second.sum());
+            }
+            return peak;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.acme.github.issues;
+
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.configuration.supplier.AgroalDataSourceConfigurationSupplier;
+import io.agroal.api.security.NamePrincipal;
+import io.agroal.api.security.SimplePassword;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.acme.github.issues.loadtest.Delivery;
+import org.acme.github.issues.loadtest.DeliveryCorpus;
+import org.acme.github.issues.utils.GitHubIssueExtractor;
+import org.acme.github.issues.utils.GitHubIssueMapper;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+
+/**
+ * Runs several {@link WebhookQueue} nodes in one JVM against a shared Postgres and measures how fast they drain the
+ * queue together, for 1, 2 and 4 nodes. Processing is simulated with a fixed latency, so the figures show how well
+ * claiming scales, not SDM. Also checks that no issue is ever processed by two nodes at the same time.
+ *
+ * <pre>
+ * docker-compose up -d postgres
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.main=org.acme.github.issues.QueueScalingLoadTest \
+ *     -Dloadtest.args="jdbc:postgresql://localhost:5432/docker 8000 50"
+ * </pre>
+ *
+ * Arguments are the JDBC URL, the number of deliveries and the simulated processing latency in milliseconds.
+ */
+public class QueueScalingLoadTest {
+    private static final int IN_FLIGHT_PER_NODE = 20;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/docker";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 8000;
+        long latencyMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        AgroalDataSource dataSource = AgroalDataSource.from(new AgroalDataSourceConfigurationSupplier()
+                .connectionPoolConfiguration(pool -> pool
+                        .maxSize(40)
+                        .connectionFactoryConfiguration(factory -> factory
+                                .jdbcUrl(url)
+                                .principal(new NamePrincipal("docker"))
+                                .credential(new SimplePassword("docker")))));
+        Jdbi jdbi = Jdbi.create(dataSource);
+        jdbi.installPlugin(new SqlObjectPlugin());
+
+        List<Delivery> deliveries = DeliveryCorpus.generate(count, 2000, 50, 42);
+        ScheduledExecutorService sdm = Executors.newScheduledThreadPool(8);
+        // untimed round so the first measured one does not pay for class loading and JIT
+        run(jdbi, deliveries.subList(0, Math.min(1000, count)), 1, latencyMillis, sdm);
+        double baseline = 0;
+        for (int nodes : new int[]{1, 2, 4}) {
+            double rate = run(jdbi, deliveries, nodes, latencyMillis, sdm);
+            if (baseline == 0) {
+                baseline = rate;
+            }
+            System.out.printf("%d node(s): %.0f deliveries/s (%.2fx)%n", nodes, rate, rate / baseline);
+        }
+        sdm.shutdownNow();
+        dataSource.close();
+    }
+
+    private static double run(Jdbi jdbi, List<Delivery> deliveries, int nodeCount, long latencyMillis,
+                              ScheduledExecutorService sdm) throws InterruptedException {
+        jdbi.useHandle(handle -> handle.execute("TRUNCATE webhook_deliveries, webhook_nodes, webhook_partitions"));
+
+        Map<String, Active> processing = new ConcurrentHashMap<>();
+        AtomicLong overlaps = new AtomicLong();
+        WebhookMappers mappers = new WebhookMappers();
+        mappers.register(Collections.singletonList(new GitHubIssueMapper()));
+        Warmup warmup = new Warmup();
+        warmup.enabled = false;
+        warmup.onStart(null);
+        List<WebhookQueue> queues = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            QueuePartitions partitions = new QueuePartitions();
+            partitions.partitions = 64;
+            partitions.leaseMillis = 1500;
+            partitions.configuredNodeId = Optional.of("node-" + i);
+            partitions.jdbi = jdbi;
+            partitions.init();
+
+            WebhookQueue queue = new WebhookQueue();
+            queue.workers = 2;
+            queue.batchSize = 10;
+            queue.pollMillis = 50;
+            queue.maxInFlight = IN_FLIGHT_PER_NODE;
+            queue.maxAttempts = 5;
+            queue.retryMillis = 1000;
+            queue.jdbi = jdbi;
+            queue.queuePartitions = partitions;
+            queue.webhookMappers = mappers;
+            queue.warmup = warmup;
+            queue.webhookProcessor = new SimulatedProcessor("node-" + i, latencyMillis, sdm, processing, overlaps);
+            queue.init();
+            queues.add(queue);
+        }
+        // queue everything up front but hold it back until the nodes have had a few rounds to share the partitions
+        for (Delivery delivery : deliveries) {
+            queues.get(0).enqueue(delivery.getEventType(), delivery.getPayload());
+        }
+        jdbi.useHandle(handle -> handle.execute("UPDATE webhook_deliveries SET available_at = now() + interval '1 hour'"));
+        for (WebhookQueue queue : queues) {
+            queue.onStart(null);
+        }
+        Thread.sleep(3000);
+
+        long start = System.nanoTime();
+        jdbi.useHandle(handle -> handle.execute("UPDATE webhook_deliveries SET available_at = now()"));
+        while (jdbi.withHandle(handle -> handle.createQuery("SELECT count(*) FROM webhook_deliveries")
+                .mapTo(Integer.class)
+                .one()) > 0) {
+            Thread.sleep(20);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (WebhookQueue queue : queues) {
+            queue.onStop(null);
+        }
+        if (overlaps.get() > 0) {
+            System.out.printf("  %d deliveries started while another node was processing the same issue%n",
+                    overlaps.get());
+        }
+        return deliveries.size() / seconds;
+    }
+
+    /**
+     * Deliveries of one issue being processed, and the node processing the first of them.
+     */
+    private static class Active {
+        private final String node;
+        private int count = 1;
+
+        private Active(String node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * Completes every delivery after a fixed delay, recording which node is working on each issue.
+     */
+    private static class SimulatedProcessor extends WebhookProcessor {
+        private final String node;
+        private final long latencyMillis;
+        private final ScheduledExecutorService scheduler;
+        private final Map<String, Active> processing;
+        private final AtomicLong overlaps;
+
+        private SimulatedProcessor(String node, long latencyMillis, ScheduledExecutorService scheduler,
+                                   Map<String, Active> processing, AtomicLong overlaps) {
+            this.node = node;
+            this.latencyMillis = latencyMillis;
+            this.scheduler = scheduler;
+            this.processing = processing;
+            this.overlaps = overlaps;
+        }
+
+        @Override
+        public CompletableFuture<Void> process(String eventType, String rawPayload) {
+            String key = GitHubIssueMapper.buildV3Key(GitHubIssueExtractor.extract(new StringReader(rawPayload)));
+            processing.compute(key, (k, active) -> {
+                if (active == null) {
+                    return new Active(node);
+                }
+                if (!active.node.equals(node)) {
+                    overlaps.incrementAndGet();
+                }
+                active.count++;
+                return active;
+            });
+
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                processing.computeIfPresent(key, (k, active) -> --active.count == 0 ? null : active);
+                result.complete(null);
+            }, latencyMillis, TimeUnit.MILLISECONDS);
+            return result;
+        }
+    }
+}
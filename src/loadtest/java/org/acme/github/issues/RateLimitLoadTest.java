@@ -0,0 +1,175 @@
+package org.acme.github.issues;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import org.acme.github.issues.AccountScheduler.Priority;
+
+/**
+ * Pushes live and background calls for one account through the {@link AccountScheduler} against a simulated SDM that
+ * accepts a fixed number of calls per second and answers the rest with a 429 and {@code Retry-After: 1}. Reports the
+ * rate SDM accepted against its capacity, how many calls it turned away, and how long live and background calls
+ * waited.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.main=org.acme.github.issues.RateLimitLoadTest \
+ *     -Dloadtest.args="100 30 20"
+ * </pre>
+ *
+ * Arguments are SDM's capacity in calls per second, the live call rate and the duration in seconds.
+ */
+public class RateLimitLoadTest {
+    private static final long LATENCY_MILLIS = 50;
+    private static final int BACKGROUND_IN_FLIGHT = 200;
+
+    public static void main(String[] args) throws Exception {
+        double capacity = args.length > 0 ? Double.parseDouble(args[0]) : 100;
+        double liveRate = args.length > 1 ? Double.parseDouble(args[1]) : 30;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        AccountScheduler scheduler = new AccountScheduler();
+        scheduler.initialRate = 20;
+        scheduler.minRate = 1;
+        scheduler.maxRate = 500;
+        scheduler.burst = 10;
+        scheduler.backoffRatio = 0.7;
+        scheduler.retryMillis = 1000;
+        scheduler.maxWaitMillis = 30000;
+        scheduler.queueCapacity = 1000;
+        scheduler.threads = 4;
+        scheduler.init();
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(8);
+        SimulatedSdm sdm = new SimulatedSdm(capacity, executor);
+        Stats live = new Stats();
+        Stats background = new Stats();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        // background work keeps as many calls open as it is allowed, like a backfill would
+        Semaphore backgroundSlots = new Semaphore(BACKGROUND_IN_FLIGHT);
+        Thread backgroundDriver = new Thread(() -> {
+            try {
+                while (System.nanoTime() < end) {
+                    backgroundSlots.acquire();
+                    send(scheduler, sdm, Priority.BACKGROUND, background)
+                            .whenComplete((v, e) -> backgroundSlots.release());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        backgroundDriver.start();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / liveRate);
+        for (long next = start; next < end; next += intervalNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            send(scheduler, sdm, Priority.LIVE, live);
+        }
+        backgroundDriver.join();
+        Thread.sleep(2000);
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("SDM accepted %.1f calls/s over %.0fs (capacity %.0f/s) and turned away %d%n",
+                sdm.accepted.sum() / elapsed, elapsed, capacity, sdm.rejected.sum());
+        System.out.printf("Scheduler settled at %.1f calls/s%n", scheduler.getRate("acme"));
+        live.print("live");
+        background.print("background");
+        scheduler.onStop(null);
+        executor.shutdownNow();
+    }
+
+    private static CompletableFuture<Void> send(AccountScheduler scheduler, SimulatedSdm sdm, Priority priority,
+                                                Stats stats) {
+        long queued = System.nanoTime();
+        return scheduler.schedule("acme", priority, () -> {
+            stats.recordWait(System.nanoTime() - queued);
+            return sdm.call();
+        }).handle((v, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (e == null) {
+                stats.done.increment();
+            } else if (cause instanceof RetryLaterException) {
+                stats.deferred.increment();
+            } else {
+                stats.failed.increment();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Waits are counted per attempt, so a call turned away by SDM counts once for every time it was sent.
+     */
+    private static class Stats {
+        private final LongAdder done = new LongAdder();
+        private final LongAdder deferred = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        private void recordWait(long nanos) {
+            attempts.increment();
+            waitNanos.add(nanos);
+        }
+
+        private void print(String name) {
+            long count = Math.max(1, attempts.sum());
+            System.out.printf("%s: %d done, %d deferred, %d failed, mean wait %.0fms%n", name, done.sum(),
+                    deferred.sum(), failed.sum(), waitNanos.sum() / 1e6 / count);
+        }
+    }
+
+    /**
+     * A token bucket holding one second of capacity, like an API gateway's limit.
+     */
+    private static class SimulatedSdm {
+        private final double capacity;
+        private final ScheduledExecutorService executor;
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        private SimulatedSdm(double capacity, ScheduledExecutorService executor) {
+            this.capacity = capacity;
+            this.executor = executor;
+            this.tokens = capacity;
+        }
+
+        private CompletableFuture<Void> call() {
+            boolean allowed;
+            synchronized (this) {
+                long now = System.nanoTime();
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * capacity / 1e9);
+                refilledAt = now;
+                allowed = tokens >= 1;
+                if (allowed) {
+                    tokens--;
+                }
+            }
+
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            executor.schedule(() -> {
+                if (allowed) {
+                    accepted.increment();
+                    result.complete(null);
+                } else {
+                    rejected.increment();
+                    result.completeExceptionally(
+                            new WebApplicationException(Response.status(429).header("Retry-After", "1").build()));
+                }
+            }, LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.acme.github.issues.loadtest;
+
+/**
+ * One recorded or generated GitHub webhook delivery.
+ */
+public class Delivery {
+    private final String eventType;
+    private final String deliveryId;
+    private final int installationId;
+    private final String payload;
+
+    public Delivery(String eventType, String deliveryId, int installationId, String payload) {
+        this.eventType = eventType;
+        this.deliveryId = deliveryId;
+        this.installationId = installationId;
+        this.payload = payload;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getDeliveryId() {
+        return deliveryId;
+    }
+
+    public int getInstallationId() {
+        return installationId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,94 @@
+package org.acme.github.issues.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+/**
+ * Loads deliveries to replay, either from an NDJSON corpus or generated from the {@code issue-edited.json} fixture.
+ */
+public class DeliveryCorpus {
+
+    /**
+     * Reads one delivery per line. A line is either {@code {"event": ..., "delivery": ..., "payload": {...}}} or a
+     * bare payload, which is replayed as an {@code issues} event.
+     */
+    public static List<Delivery> read(Path corpus) throws IOException {
+        List<Delivery> deliveries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                JsonObject record = parse(line);
+                JsonObject payload = record.containsKey("payload") ? record.getJsonObject("payload") : record;
+                deliveries.add(new Delivery(
+                        record.getString("event", "issues"),
+                        record.getString("delivery", UUID.randomUUID().toString()),
+                        installationId(payload),
+                        payload.toString()));
+            }
+        }
+        return deliveries;
+    }
+
+    /**
+     * Generates {@code count} {@code issues} deliveries spread over {@code issues} distinct issues in
+     * {@code installations} installations. Every delivery moves its issue's {@code updated_at} forward.
+     */
+    public static List<Delivery> generate(int count, int issues, int installations, long seed) throws IOException {
+        JsonObject template;
+        try (JsonReader reader = Json.createReader(new InputStreamReader(
+                DeliveryCorpus.class.getResourceAsStream("/org/acme/github/issues/utils/issue-edited.json"),
+                StandardCharsets.UTF_8))) {
+            template = reader.readObject();
+        }
+        JsonObject templateIssue = template.getJsonObject("issue");
+        Instant start = Instant.parse(templateIssue.getString("updated_at"));
+
+        Random random = new Random(seed);
+        long[] updates = new long[issues];
+        List<Delivery> deliveries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int issue = random.nextInt(issues);
+            int installationId = 1_000_000 + issue % installations;
+            updates[issue]++;
+            JsonObject payload = Json.createObjectBuilder(template)
+                    .add("installation", Json.createObjectBuilder().add("id", installationId))
+                    .add("issue", Json.createObjectBuilder(templateIssue)
+                            .add("id", 600_000_000L + issue)
+                            .add("node_id", "MDU6SXNzdWU" + issue)
+                            .add("number", issue + 1)
+                            .add("updated_at", start.plusSeconds(updates[issue]).toString()))
+                    .build();
+            deliveries.add(new Delivery("issues", UUID.randomUUID().toString(), installationId, payload.toString()));
+        }
+        return deliveries;
+    }
+
+    private static int installationId(JsonObject payload) {
+        if (!payload.containsKey("installation") || payload.isNull("installation")) {
+            return -1;
+        }
+        return payload.getJsonObject("installation").getJsonNumber("id").intValue();
+    }
+
+    private static JsonObject parse(String json) {
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
+    }
+}
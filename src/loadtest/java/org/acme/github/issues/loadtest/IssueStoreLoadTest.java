@@ -0,0 +1,80 @@
+package org.acme.github.issues.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.acme.github.issues.backfill.GeneratedIssueSource;
+import org.acme.github.issues.dao.StoredIssueWriter;
+import org.acme.github.issues.model.IssueEvent;
+import org.acme.github.issues.model.StoredIssue;
+import org.acme.github.issues.utils.GitHubIssueMapper;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+
+/**
+ * Measures bulk write throughput of the {@code sor_data_github_issues} store against a running Postgres, e.g. the
+ * developer-env container:
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.main=org.acme.github.issues.loadtest.IssueStoreLoadTest \
+ *     -Dloadtest.args="jdbc:postgresql://localhost:5432/docker 200000 5000"
+ * </pre>
+ *
+ * Arguments are the JDBC URL, the number of issues and the batch size. Issues are spread over 50 accounts and written
+ * twice: once as new rows, then again as older snapshots that must all lose against what is stored.
+ */
+public class IssueStoreLoadTest {
+
+    public static void main(String[] args) {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/docker";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        Jdbi jdbi = Jdbi.create(url, "docker", "docker");
+        jdbi.installPlugin(new SqlObjectPlugin());
+        StoredIssueWriter writer = new StoredIssueWriter(jdbi);
+
+        List<StoredIssue> issues = generate(count);
+        jdbi.useHandle(handle -> handle.execute("TRUNCATE sor_data_github_issues"));
+
+        report("insert", writer, issues, batchSize);
+
+        List<StoredIssue> stale = new ArrayList<>(issues.size());
+        for (StoredIssue issue : issues) {
+            stale.add(new StoredIssue(issue.getAccount(), issue.getKey(), issue.getUpdatedAt() - 1000, "{}"));
+        }
+        report("stale", writer, stale, batchSize);
+
+        int empty = jdbi.withHandle(handle -> handle
+                .createQuery("SELECT count(*) FROM sor_data_github_issues WHERE data = '{}'::jsonb")
+                .mapTo(Integer.class)
+                .one());
+        System.out.printf("stale snapshots stored: %d%n", empty);
+    }
+
+    private static List<StoredIssue> generate(int count) {
+        int accounts = 50;
+        List<StoredIssue> issues = new ArrayList<>(count);
+        List<GeneratedIssueSource> sources = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            sources.add(new GeneratedIssueSource(1_000_000 + i, count / accounts + 1));
+        }
+        for (int i = 0; i < count; i++) {
+            IssueEvent event = sources.get(i % accounts).next();
+            issues.add(new StoredIssue("account-" + event.getInstallationId(), GitHubIssueMapper.buildV3Key(event),
+                    GitHubIssueMapper.getV3UpdatedAt(event), GitHubIssueMapper.mapV3Issue(event).toString()));
+        }
+        return issues;
+    }
+
+    private static void report(String name, StoredIssueWriter writer, List<StoredIssue> issues, int batchSize) {
+        long start = System.nanoTime();
+        int written = 0;
+        for (int i = 0; i < issues.size(); i += batchSize) {
+            written += writer.upsert(issues.subList(i, Math.min(i + batchSize, issues.size())));
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%s: %d issues in %.2fs (%.0f issues/s), %d rows written%n",
+                name, issues.size(), seconds, issues.size() / seconds, written);
+    }
+}
@@ -0,0 +1,149 @@
+package org.acme.github.issues.loadtest;
+
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capacity test for the webhook service. Starts an {@link SdmStub}, replays deliveries against {@code /webhook} with
+ * a {@link WebhookReplayer}, waits for the service to drain its queue and reports ingest throughput, acknowledgement
+ * latency and SDM traffic per event.
+ *
+ * <p>The service under test must point at the stub, e.g.
+ *
+ * <pre>
+ * docker-compose up -d postgres
+ * mvn quarkus:dev -Dsdm.api.url=http://localhost:9090 \
+ *     -Dorg.acme.github.issues.client.SDMApiClient/mp-rest/url=http://localhost:9090
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--rate=500 --events=50000 --latency=80"
+ * </pre>
+ *
+ * <p>Options (all {@code --name=value}):
+ * <ul>
+ *     <li>{@code webhook} webhook URL, default {@code http://localhost:8080/webhook}</li>
+ *     <li>{@code stub-port} port of the SDM stub, default 9090</li>
+ *     <li>{@code corpus} NDJSON file of recorded deliveries; when absent deliveries are generated</li>
+ *     <li>{@code events}, {@code issues}, {@code installations}, {@code seed} shape of generated deliveries</li>
+ *     <li>{@code rate} target deliveries per second, default 100</li>
+ *     <li>{@code arrival} {@code fixed} or {@code poisson}, default fixed</li>
+ *     <li>{@code concurrency} maximum deliveries in flight, default 256</li>
+ *     <li>{@code latency}, {@code jitter} SDM stub latency and extra random latency in ms</li>
+ *     <li>{@code error-rate} share of SDM requests answered with 503</li>
+ *     <li>{@code exists-rate} share of creates answered with "already exists"</li>
+ *     <li>{@code token-ttl} lifetime of stub account tokens in seconds, default 600</li>
+ *     <li>{@code drain-quiet} seconds without SDM mutations after which the run counts as drained, default 5</li>
+ *     <li>{@code stub-only} just run the stub until interrupted</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+
+        List<Delivery> deliveries = options.containsKey("corpus")
+                ? DeliveryCorpus.read(Paths.get(options.get("corpus")))
+                : DeliveryCorpus.generate(
+                        intOption(options, "events", 10_000),
+                        intOption(options, "issues", 1_000),
+                        intOption(options, "installations", 10),
+                        Long.parseLong(options.getOrDefault("seed", "42")));
+
+        Map<String, Integer> installations = new TreeMap<>();
+        deliveries.stream()
+                .mapToInt(Delivery::getInstallationId)
+                .filter(id -> id >= 0)
+                .distinct()
+                .forEach(id -> installations.put("account-" + id, id));
+
+        try (SdmStub stub = new SdmStub(
+                intOption(options, "stub-port", 9090),
+                installations,
+                intOption(options, "latency", 0),
+                intOption(options, "jitter", 0),
+                Double.parseDouble(options.getOrDefault("error-rate", "0")),
+                Double.parseDouble(options.getOrDefault("exists-rate", "0")),
+                TimeUnit.SECONDS.toMillis(intOption(options, "token-ttl", 600)))) {
+            stub.start();
+            System.out.printf("SDM stub listening on port %d with %d installations%n", stub.getPort(),
+                    installations.size());
+            if (options.containsKey("stub-only")) {
+                Thread.currentThread().join();
+            }
+
+            WebhookReplayer replayer = new WebhookReplayer(
+                    new URL(options.getOrDefault("webhook", "http://localhost:8080/webhook")),
+                    Double.parseDouble(options.getOrDefault("rate", "100")),
+                    "poisson".equals(options.get("arrival")),
+                    intOption(options, "concurrency", 256));
+
+            System.out.printf("Replaying %d deliveries%n", deliveries.size());
+            long start = System.nanoTime();
+            replayer.replay(deliveries);
+            long drainedAt = awaitDrain(stub, TimeUnit.SECONDS.toNanos(intOption(options, "drain-quiet", 5)));
+
+            report(deliveries.size(), replayer, stub, start, drainedAt);
+        }
+    }
+
+    private static long awaitDrain(SdmStub stub, long quietNanos) throws InterruptedException {
+        long mutations = -1;
+        long lastChange = System.nanoTime();
+        while (System.nanoTime() - lastChange < quietNanos) {
+            TimeUnit.MILLISECONDS.sleep(200);
+            long current = stub.getMutations();
+            if (current != mutations) {
+                mutations = current;
+                lastChange = System.nanoTime();
+            }
+        }
+        return stub.getLastMutationNanos();
+    }
+
+    private static void report(int events, WebhookReplayer replayer, SdmStub stub, long start, long drainedAt) {
+        double sentSeconds = replayer.getElapsedNanos() / 1e9;
+        double drainSeconds = Math.max(drainedAt - start, replayer.getElapsedNanos()) / 1e9;
+        double[] latency = replayer.latencyPercentilesMillis(50, 90, 99, 99.9, 100);
+        long sdmRequests = stub.getGraphQLRequests() + stub.getTokenRequests();
+
+        System.out.println();
+        System.out.printf("Deliveries:   %d sent in %.1fs (%.1f/s), %d failed%n",
+                events, sentSeconds, events / sentSeconds, replayer.getFailures());
+        System.out.printf("Ack latency:  p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms%n",
+                latency[0], latency[1], latency[2], latency[3], latency[4]);
+        System.out.printf("Processed:    drained %.1fs after start (%.1f events/s end to end)%n",
+                drainSeconds, events / drainSeconds);
+        System.out.printf("SDM traffic:  %d GraphQL requests, %d token requests, %d config queries, %d lookups%n",
+                stub.getGraphQLRequests(), stub.getTokenRequests(), stub.getConfigQueries(), stub.getLookups());
+        System.out.printf("GraphQL body: %.1f KiB sent on the wire, %d persisted query misses%n",
+                stub.getGraphQLBytes() / 1024.0, stub.getPersistedMisses());
+        System.out.printf("Mutations:    %d adds (%d already existed), %d updates, %d injected failures%n",
+                stub.getAdds(), stub.getExistsFailures(), stub.getUpdates(), stub.getInjectedFailures());
+        System.out.printf("Per event:    %.3f SDM requests, %.3f mutations, %.0f GraphQL bytes%n",
+                (double) sdmRequests / events, (double) stub.getMutations() / events,
+                (double) stub.getGraphQLBytes() / events);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+}
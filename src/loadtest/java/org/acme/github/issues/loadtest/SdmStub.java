@@ -0,0 +1,358 @@
+package org.acme.github.issues.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import org.apache.commons.io.IOUtils;
+import org.jose4j.jwk.EcJwkGenerator;
+import org.jose4j.jwk.EllipticCurveJsonWebKey;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.keys.EllipticCurves;
+import org.jose4j.lang.JoseException;
+
+/**
+ * In-process stand-in for the SDM platform: the account token endpoint and the per-account GraphQL endpoint. It
+ * keeps the issues it was sent in memory so creates, lookups and updates behave like the real thing, and can add
+ * latency, fail a share of requests and answer a share of creates with "already exists". Like a server with automatic
+ * persisted queries it accepts a query by its SHA-256 id once it has seen the text.
+ */
+public class SdmStub implements Closeable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Integer> installations;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double errorRate;
+    private final double existsRate;
+    private final long tokenTtlMillis;
+    private final EllipticCurveJsonWebKey signingKey;
+
+    private final ConcurrentMap<String, String> ids = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final ConcurrentMap<String, String> persistedQueries = new ConcurrentHashMap<>();
+
+    private final LongAdder tokenRequests = new LongAdder();
+    private final LongAdder graphQLRequests = new LongAdder();
+    private final LongAdder graphQLBytes = new LongAdder();
+    private final LongAdder persistedMisses = new LongAdder();
+    private final LongAdder configQueries = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder adds = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder existsFailures = new LongAdder();
+    private final LongAdder injectedFailures = new LongAdder();
+    private volatile long lastMutationNanos;
+
+    /**
+     * @param installations installation id per SDM account, served as the app config.
+     */
+    public SdmStub(int port, Map<String, Integer> installations, long latencyMillis, long latencyJitterMillis,
+                   double errorRate, double existsRate, long tokenTtlMillis) throws IOException {
+        this.installations = installations;
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.errorRate = errorRate;
+        this.existsRate = existsRate;
+        this.tokenTtlMillis = tokenTtlMillis;
+        try {
+            this.signingKey = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        } catch (JoseException e) {
+            throw new IOException("Could not generate token signing key", e);
+        }
+
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "sdm-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getTokenRequests() {
+        return tokenRequests.sum();
+    }
+
+    public long getGraphQLRequests() {
+        return graphQLRequests.sum();
+    }
+
+    public long getGraphQLBytes() {
+        return graphQLBytes.sum();
+    }
+
+    public long getPersistedMisses() {
+        return persistedMisses.sum();
+    }
+
+    public long getConfigQueries() {
+        return configQueries.sum();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getAdds() {
+        return adds.sum();
+    }
+
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    public long getExistsFailures() {
+        return existsFailures.sum();
+    }
+
+    public long getInjectedFailures() {
+        return injectedFailures.sum();
+    }
+
+    public long getMutations() {
+        return adds.sum() + updates.sum();
+    }
+
+    public long getLastMutationNanos() {
+        return lastMutationNanos;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = readBody(exchange);
+            simulateLatency();
+
+            if (path.startsWith("/platform/api/app/installations/") && path.endsWith("/accessToken")) {
+                tokenRequests.increment();
+                if (injectFailure()) {
+                    respond(exchange, 503, "");
+                    return;
+                }
+                respond(exchange, 200, issueToken(path));
+            } else if (path.startsWith("/a/") && path.endsWith("/graphql")) {
+                graphQLRequests.increment();
+                graphQLBytes.add(body.length);
+                if (injectFailure()) {
+                    respond(exchange, 503, "{}");
+                    return;
+                }
+                String account = path.substring("/a/".length(), path.length() - "/graphql".length());
+                JsonObject request;
+                try (JsonReader reader = Json.createReader(decode(exchange, body))) {
+                    request = reader.readObject();
+                }
+                respond(exchange, 200, graphQL(account, request).toString());
+            } else {
+                respond(exchange, 404, "");
+            }
+        } catch (Exception e) {
+            respond(exchange, 500, "{\"errors\":[{\"message\":\"" + e + "\"}]}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JsonObject graphQL(String account, JsonObject request) {
+        String query = request.getString("query", null);
+        String hash = persistedQueryHash(request);
+        if (hash != null) {
+            if (query != null) {
+                persistedQueries.put(hash, query);
+            } else {
+                query = persistedQueries.get(hash);
+            }
+            if (query == null) {
+                persistedMisses.increment();
+                return Json.createObjectBuilder()
+                        .add("errors", Json.createArrayBuilder().add(Json.createObjectBuilder()
+                                .add("message", "PersistedQueryNotFound")
+                                .add("extensions", Json.createObjectBuilder()
+                                        .add("code", "PERSISTED_QUERY_NOT_FOUND"))))
+                        .build();
+            }
+        }
+        if (query == null) {
+            query = "";
+        }
+        JsonObject variables = request.containsKey("variables") && !request.isNull("variables")
+                ? request.getJsonObject("variables") : Json.createObjectBuilder().build();
+        JsonObjectBuilder data = Json.createObjectBuilder();
+        JsonArrayBuilder errors = Json.createArrayBuilder();
+
+        if (query.contains("configs(")) {
+            configQueries.increment();
+            JsonArrayBuilder nodes = Json.createArrayBuilder();
+            installations.forEach((installationAccount, installationId) -> nodes.add(Json.createObjectBuilder()
+                    .add("account", installationAccount)
+                    .add("appId", "24")
+                    .add("config", Json.createObjectBuilder()
+                            .add("githubAccount", installationAccount)
+                            .add("installationId", installationId))));
+            data.add("configs", Json.createObjectBuilder().add("nodes", nodes));
+        } else if (query.contains("gitHubIssues(")) {
+            lookups.increment();
+            JsonArrayBuilder nodes = Json.createArrayBuilder();
+            String id = ids.get(account + '/' + variables.getString("key"));
+            if (id != null) {
+                nodes.add(Json.createObjectBuilder().add("id", id));
+            }
+            data.add("gitHubIssues", Json.createObjectBuilder().add("nodes", nodes));
+        } else {
+            mutations(account, variables, data, errors);
+        }
+
+        return Json.createObjectBuilder()
+                .add("data", data)
+                .add("errors", errors)
+                .build();
+    }
+
+    private static String persistedQueryHash(JsonObject request) {
+        if (!request.containsKey("extensions") || request.isNull("extensions")) {
+            return null;
+        }
+        JsonObject extensions = request.getJsonObject("extensions");
+        if (!extensions.containsKey("persistedQuery") || extensions.isNull("persistedQuery")) {
+            return null;
+        }
+        return extensions.getJsonObject("persistedQuery").getString("sha256Hash", null);
+    }
+
+    /**
+     * Answers the aliased batch documents built by {@code GraphQLBatch}: {@code keyN}/{@code idN} variables belong
+     * to the add/update under alias {@code mN}.
+     */
+    private void mutations(String account, JsonObject variables, JsonObjectBuilder data, JsonArrayBuilder errors) {
+        for (String name : variables.keySet()) {
+            if (name.startsWith("key")) {
+                String alias = "m" + name.substring("key".length());
+                String key = account + '/' + variables.getString(name);
+                String id = "sdm-" + nextId.incrementAndGet();
+                boolean exists = ids.putIfAbsent(key, id) != null
+                        || ThreadLocalRandom.current().nextDouble() < existsRate;
+                adds.increment();
+                if (exists) {
+                    existsFailures.increment();
+                    data.addNull(alias);
+                    errors.add(Json.createObjectBuilder()
+                            .add("message", "Data with key already exists")
+                            .add("path", Json.createArrayBuilder().add(alias).add("add")));
+                } else {
+                    data.add(alias, Json.createObjectBuilder().add("add", Json.createObjectBuilder()
+                            .add("data", Json.createObjectBuilder().add("id", id))));
+                }
+            } else if (name.startsWith("id")) {
+                String alias = "m" + name.substring("id".length());
+                updates.increment();
+                data.add(alias, Json.createObjectBuilder().add("update", Json.createObjectBuilder()
+                        .add("data", Json.createObjectBuilder().add("id", variables.getString(name)))));
+            }
+        }
+        lastMutationNanos = System.nanoTime();
+    }
+
+    private String issueToken(String path) throws JoseException {
+        long now = System.currentTimeMillis();
+        JwtClaims claims = new JwtClaims();
+        claims.setSubject(path.split("/")[5]);
+        claims.setIssuedAt(NumericDate.fromMilliseconds(now));
+        claims.setExpirationTime(NumericDate.fromMilliseconds(now + tokenTtlMillis));
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(signingKey.getPrivateKey());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+        return jws.getCompactSerialization();
+    }
+
+    private void simulateLatency() throws InterruptedException {
+        long millis = latencyMillis;
+        if (latencyJitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1);
+        }
+        if (millis > 0) {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+    }
+
+    private boolean injectFailure() {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedFailures.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    /**
+     * Inflates a request body sent with {@code sdm.http.request.compression}. {@link #getGraphQLBytes()} counts the
+     * bytes as they were sent.
+     */
+    private static InputStream decode(HttpExchange exchange, byte[] body) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        InputStream in = new ByteArrayInputStream(body);
+        if ("gzip".equals(encoding)) {
+            return new GZIPInputStream(in);
+        }
+        if ("deflate".equals(encoding)) {
+            return new InflaterInputStream(in);
+        }
+        return in;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
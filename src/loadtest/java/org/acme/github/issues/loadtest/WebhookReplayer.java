@@ -0,0 +1,127 @@
+package org.acme.github.issues.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Replays deliveries against the webhook endpoint on an open-loop schedule: each delivery has an intended send time
+ * fixed up front by the target rate, and its latency is measured from that time, so a slow service shows up as
+ * latency instead of silently lowering the offered load.
+ */
+public class WebhookReplayer {
+    private final URL webhookUrl;
+    private final double rate;
+    private final boolean poisson;
+    private final ExecutorService senders;
+
+    private final LongAdder failures = new LongAdder();
+    private long[] latencyNanos;
+    private long elapsedNanos;
+
+    /**
+     * @param rate target deliveries per second.
+     * @param poisson use exponentially distributed inter-arrival times instead of a fixed interval.
+     * @param concurrency maximum number of deliveries in flight.
+     */
+    public WebhookReplayer(URL webhookUrl, double rate, boolean poisson, int concurrency) {
+        this.webhookUrl = webhookUrl;
+        this.rate = rate;
+        this.poisson = poisson;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "replayer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void replay(List<Delivery> deliveries) throws InterruptedException {
+        latencyNanos = new long[deliveries.size()];
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        double offset = 0;
+
+        for (int i = 0; i < deliveries.size(); i++) {
+            long intended = start + (long) offset;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int index = i;
+            Delivery delivery = deliveries.get(i);
+            senders.execute(() -> latencyNanos[index] = send(delivery, intended));
+
+            offset += poisson
+                    ? -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos
+                    : meanIntervalNanos;
+        }
+
+        senders.shutdown();
+        senders.awaitTermination(1, TimeUnit.HOURS);
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the latency percentiles in milliseconds, for each of the given percentiles.
+     */
+    public double[] latencyPercentilesMillis(double... percentiles) {
+        long[] sorted = latencyNanos.clone();
+        Arrays.sort(sorted);
+        double[] result = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] / 100 * sorted.length) - 1;
+            result[i] = sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+        return result;
+    }
+
+    private long send(Delivery delivery, long intended) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) webhookUrl.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("X-GitHub-Event", delivery.getEventType());
+            connection.setRequestProperty("X-GitHub-Delivery", delivery.getDeliveryId());
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(delivery.getPayload().getBytes(StandardCharsets.UTF_8));
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status / 100 == 2 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                try (InputStream body = in) {
+                    IOUtils.toByteArray(body);
+                }
+            }
+            if (status / 100 != 2) {
+                failures.increment();
+            }
+        } catch (IOException e) {
+            failures.increment();
+        }
+        return System.nanoTime() - intended;
+    }
+}
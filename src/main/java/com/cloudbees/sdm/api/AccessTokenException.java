@@ -0,0 +1,30 @@
+package com.cloudbees.sdm.api;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the platform answers an account token request with an error status.
+ */
+public class AccessTokenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+    private final String retryAfter;
+
+    public AccessTokenException(String message, int status, String retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the raw {@code Retry-After} header of the response, or {@code null} if it had none.
+     */
+    public String getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,17 +1,29 @@
 package com.cloudbees.sdm.api;
 
 import com.damnhandy.uri.template.UriTemplate;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import org.apache.commons.io.IOUtils;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.util.EntityUtils;
 import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwt.JwtClaims;
@@ -23,31 +35,204 @@ import org.jose4j.lang.JoseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class AppTokens {
+public class AppTokens implements Closeable {
     private static final long ACCESS_TOKEN_VALIDITY_BUFFER_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long ACCESS_TOKEN_REFRESH_AHEAD_MILLIS = TimeUnit.SECONDS.toMillis(30);
     private static final Logger LOGGER = LoggerFactory.getLogger(AppTokens.class);
 
     private transient PrivateKey privateKey;
     private transient AccessToken appAccessToken;
-    private transient Map<String, AccessToken> accountAccessTokens = new HashMap<String, AccessToken>();
+    private final transient ConcurrentMap<String, AccessToken> accountAccessTokens = new ConcurrentHashMap<>();
+    private final transient ConcurrentMap<String, CompletableFuture<AccessToken>> pendingFetches =
+            new ConcurrentHashMap<>();
+    private final transient ScheduledExecutorService refresher;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    private final transient HttpClient httpClient;
+    private final transient HttpAsyncClient asyncHttpClient;
 
     private String platformEndpoint;
     private String privateKeyStr;
     private String appId;
 
     public AppTokens(String platformEndpoint, String privateKeyStr, String appId) {
+        this(platformEndpoint, privateKeyStr, appId, HttpClients.createSystem());
+    }
+
+    /**
+     * @param httpClient the client used to call the platform token endpoint, typically shared and pooled.
+     */
+    public AppTokens(String platformEndpoint, String privateKeyStr, String appId, HttpClient httpClient) {
+        this(platformEndpoint, privateKeyStr, appId, httpClient, null);
+    }
+
+    /**
+     * @param asyncHttpClient if not {@code null}, used by {@link #getAccountAccessTokenAsync(String)} so fetching a
+     * token does not block a thread. Must be started.
+     */
+    public AppTokens(String platformEndpoint, String privateKeyStr, String appId, HttpClient httpClient,
+                     HttpAsyncClient asyncHttpClient) {
         this.privateKeyStr = privateKeyStr;
         this.appId = appId;
         this.platformEndpoint = platformEndpoint;
+        this.httpClient = httpClient;
+        this.asyncHttpClient = asyncHttpClient;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "app-tokens-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
+    /**
+     * Returns a valid access token for the account. Tokens are cached and refreshed in the background shortly before
+     * they expire, as long as they were used since they were last fetched. Concurrent callers missing the cache for
+     * the same account share a single fetch.
+     */
     public String getAccountAccessToken(String account) throws IOException {
-        AccessToken accountAccessToken = accountAccessTokens.get(account);
-        if (accountAccessToken != null && !accountAccessToken.isExpired()) {
-            LOGGER.debug("Using cached token (account={}, expiresAt={})", account, new Date(accountAccessToken.getExpiresAt()));
+        AccessToken accountAccessToken = cachedAccountAccessToken(account);
+        if (accountAccessToken != null) {
             return accountAccessToken.getToken();
         }
 
+        cacheMisses.increment();
+        return fetchAccountAccessToken(account).getToken();
+    }
+
+    /**
+     * Like {@link #getAccountAccessToken(String)}, but a cache miss does not block the caller. Without an
+     * asynchronous HTTP client the fetch happens on the calling thread.
+     */
+    public CompletableFuture<String> getAccountAccessTokenAsync(String account) {
+        AccessToken accountAccessToken = cachedAccountAccessToken(account);
+        if (accountAccessToken != null) {
+            return CompletableFuture.completedFuture(accountAccessToken.getToken());
+        }
+
+        cacheMisses.increment();
+        if (asyncHttpClient == null) {
+            CompletableFuture<String> result = new CompletableFuture<>();
+            try {
+                result.complete(fetchAccountAccessToken(account).getToken());
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        return fetchAccountAccessTokenAsync(account).thenApply(AccessToken::getToken);
+    }
+
+    private AccessToken cachedAccountAccessToken(String account) {
+        AccessToken accountAccessToken = accountAccessTokens.get(account);
+        if (accountAccessToken == null || accountAccessToken.isExpired()) {
+            return null;
+        }
+        cacheHits.increment();
+        accountAccessToken.markUsed();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Using cached token (account={}, expiresAt={})", account,
+                    new Date(accountAccessToken.getExpiresAt()));
+        }
+        return accountAccessToken;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.sum();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private AccessToken fetchAccountAccessToken(String account) throws IOException {
+        CompletableFuture<AccessToken> fetch = new CompletableFuture<>();
+        CompletableFuture<AccessToken> inFlight = pendingFetches.putIfAbsent(account, fetch);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            AccessToken accountAccessToken = new AccessToken(requestAccountAccessToken(account));
+            accountAccessTokens.put(account, accountAccessToken);
+            scheduleRefresh(account, accountAccessToken);
+            fetch.complete(accountAccessToken);
+            return accountAccessToken;
+        } catch (IOException | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingFetches.remove(account, fetch);
+        }
+    }
+
+    private CompletableFuture<AccessToken> fetchAccountAccessTokenAsync(String account) {
+        CompletableFuture<AccessToken> fetch = new CompletableFuture<>();
+        CompletableFuture<AccessToken> inFlight = pendingFetches.putIfAbsent(account, fetch);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        HttpPost request;
+        try {
+            request = accountAccessTokenRequest(account);
+        } catch (IOException | RuntimeException e) {
+            pendingFetches.remove(account, fetch);
+            fetch.completeExceptionally(e);
+            return fetch;
+        }
+
+        asyncHttpClient.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    AccessToken accountAccessToken = new AccessToken(readAccountAccessToken(response));
+                    accountAccessTokens.put(account, accountAccessToken);
+                    scheduleRefresh(account, accountAccessToken);
+                    fetch.complete(accountAccessToken);
+                } catch (IOException | RuntimeException e) {
+                    fetch.completeExceptionally(e);
+                } finally {
+                    pendingFetches.remove(account, fetch);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                fetch.completeExceptionally(e);
+                pendingFetches.remove(account, fetch);
+            }
+
+            @Override
+            public void cancelled() {
+                fetch.completeExceptionally(new InterruptedIOException("Access token request cancelled"));
+                pendingFetches.remove(account, fetch);
+            }
+        });
+        return fetch;
+    }
+
+    private String requestAccountAccessToken(String account) throws IOException {
+        return httpClient.execute(accountAccessTokenRequest(account), AppTokens::readAccountAccessToken);
+    }
+
+    private HttpPost accountAccessTokenRequest(String account) throws IOException {
         LOGGER.debug("Fetching app account token (account={})", account);
         String appAccessToken = appAccessToken();
 
@@ -55,29 +240,81 @@ public class AppTokens {
                 .literal("/platform/api/app/installations").path("account").literal("/accessToken")
                 .build();
 
-        URL accountTokenUrl = new URL(accountTokenTemplate.set("account", account).expand());
+        HttpPost request = new HttpPost(accountTokenTemplate.set("account", account).expand());
+        request.setHeader("Authorization", "Bearer " + appAccessToken);
+        return request;
+    }
 
-        HttpURLConnection connection = (HttpURLConnection)accountTokenUrl.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Authorization", "Bearer " + appAccessToken);
-        connection.connect();
-        int status = connection.getResponseCode();
+    private static String readAccountAccessToken(HttpResponse response) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        HttpEntity entity = response.getEntity();
         if (status / 100 == 2) {
-            try (InputStream in = connection.getInputStream()) {
-                String accountBearerToken = IOUtils.toString(in, StandardCharsets.UTF_8.name());
-                accountAccessTokens.put(account, new AccessToken(accountBearerToken));
-                return accountBearerToken;
-            }
+            return EntityUtils.toString(entity, StandardCharsets.UTF_8);
+        }
+        // drain the error body so the connection can go back to the pool
+        String error = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+        Header retryAfter = response.getFirstHeader("Retry-After");
+        throw new AccessTokenException("Could not retrieve access token (httpErrorCode:" + status + ", body:" + error
+                + ")", status, retryAfter == null ? null : retryAfter.getValue());
+    }
+
+    private void scheduleRefresh(String account, AccessToken accountAccessToken) {
+        long delayMillis = accountAccessToken.getExpiresAt() - ACCESS_TOKEN_VALIDITY_BUFFER_MILLIS
+                - ACCESS_TOKEN_REFRESH_AHEAD_MILLIS - System.currentTimeMillis();
+        if (delayMillis <= 0) {
+            // too short lived to refresh ahead of time, the next caller will fetch a new one
+            return;
+        }
+        refresher.schedule(() -> refresh(account, accountAccessToken), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh(String account, AccessToken previous) {
+        if (accountAccessTokens.get(account) != previous) {
+            return;
+        }
+        if (!previous.isUsed()) {
+            // nobody asked for this account lately, let the token lapse instead of keeping it warm forever
+            accountAccessTokens.remove(account, previous);
+            return;
+        }
+
+        try {
+            fetchAccountAccessToken(account);
+            refreshes.increment();
+        } catch (Exception e) {
+            refreshFailures.increment();
+            LOGGER.warn("Could not refresh app account token (account={})", account, e);
         }
-        else {
-            throw new IOException("Could not retrieve access token (httpErrorCode:" + status + ")");
+    }
+
+    private static AccessToken await(CompletableFuture<AccessToken> fetch) throws IOException {
+        try {
+            return fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for access token");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Could not retrieve access token", cause);
         }
     }
 
-    public String appAccessToken() throws IOException {
+    public synchronized String appAccessToken() throws IOException {
         if (appAccessToken != null && !appAccessToken.isExpired()) {
             return appAccessToken.getToken();
         }
+        String appBearerToken = signAppAccessToken();
+        appAccessToken = new AccessToken(appBearerToken);
+        return appBearerToken;
+    }
+
+    String signAppAccessToken() throws IOException {
         long issuedAtMillis = System.currentTimeMillis();
         JwtClaims appToken = new JwtClaims();
         appToken.setGeneratedJwtId();
@@ -97,7 +334,6 @@ public class AppTokens {
         } catch (JoseException e) {
             throw new IOException("Could not sign Application JWT", e);
         }
-        appAccessToken = new AccessToken(appBearerToken);
         return appBearerToken;
     }
 
@@ -112,9 +348,10 @@ public class AppTokens {
         return privateKey;
     }
 
-    private static class AccessToken {
+    static class AccessToken {
         private final String token;
         private final long expiresMillis;
+        private volatile boolean used;
 
         public AccessToken(String token) {
             this.token = token;
@@ -143,5 +380,13 @@ public class AppTokens {
         public long getExpiresAt() {
             return expiresMillis;
         }
+
+        public void markUsed() {
+            used = true;
+        }
+
+        public boolean isUsed() {
+            return used;
+        }
     }
 }
@@ -0,0 +1,245 @@
+package org.acme.github.issues;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-account concurrency limit and circuit breaker for SDM requests, so that one slow or failing account cannot tie
+ * up every connection. Permits are taken around the HTTP call itself, see {@link #call(String, Supplier)}, so time
+ * spent batching or waiting for the account's turn is neither held against SDM nor holds a permit.
+ *
+ * <p>The limit follows AIMD: it grows by roughly one for every limit's worth of successful calls while it is
+ * being used, and shrinks by {@code sdm.limit.backoff.ratio} on a failure or when a call takes more than
+ * {@code sdm.limit.latency.tolerance} times the smoothed latency. After {@code sdm.breaker.failure.threshold}
+ * consecutive failures the breaker opens and the account gets no traffic for {@code sdm.breaker.open.millis}. It then
+ * half-opens at the minimum limit: the first success closes it and the limit grows back from there, a failure opens it
+ * again.
+ */
+@ApplicationScoped
+public class AccountLimiter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountLimiter.class);
+
+    @ConfigProperty(name = "sdm.limit.initial", defaultValue = "8")
+    int initialLimit;
+
+    @ConfigProperty(name = "sdm.limit.min", defaultValue = "1")
+    int minLimit;
+
+    @ConfigProperty(name = "sdm.limit.max", defaultValue = "64")
+    int maxLimit;
+
+    @ConfigProperty(name = "sdm.limit.backoff.ratio", defaultValue = "0.9")
+    double backoffRatio;
+
+    @ConfigProperty(name = "sdm.limit.latency.tolerance", defaultValue = "2.0")
+    double latencyTolerance;
+
+    @ConfigProperty(name = "sdm.limit.defer.millis", defaultValue = "1000")
+    long deferMillis;
+
+    @ConfigProperty(name = "sdm.breaker.failure.threshold", defaultValue = "5")
+    int failureThreshold;
+
+    @ConfigProperty(name = "sdm.breaker.open.millis", defaultValue = "30000")
+    long openMillis;
+
+    LongSupplier clock = System::nanoTime;
+
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * @return a permit that must be completed with {@link Permit#success()}, {@link Permit#failure()} or
+     * {@link Permit#release()}.
+     * @throws AccountThrottledException when the account is at its limit or its breaker is open.
+     */
+    public Permit acquire(String account) {
+        Limit limit = limits.computeIfAbsent(account, Limit::new);
+        long now = clock.getAsLong();
+        long retryAfterNanos = limit.tryAcquire(now);
+        if (retryAfterNanos > 0) {
+            throw new AccountThrottledException(account, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos));
+        }
+        return new Permit(limit, now);
+    }
+
+    /**
+     * Makes an SDM call under a permit of the account, completed by the outcome of the call. A rate limit response
+     * releases the permit without counting as a failure, as the {@link AccountScheduler} deals with it.
+     *
+     * @return the future of the call, or one failed with an {@link AccountThrottledException} if no permit was
+     * available.
+     */
+    public <T> CompletableFuture<T> call(String account, Supplier<CompletableFuture<T>> call) {
+        Permit permit;
+        CompletableFuture<T> result;
+        try {
+            permit = acquire(account);
+        } catch (AccountThrottledException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        return result.whenComplete((v, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (e == null) {
+                permit.success();
+            } else if (AccountScheduler.isRateLimited(cause)) {
+                // the scheduler already slows the account down, counting it here too would back off twice
+                permit.release();
+            } else {
+                permit.failure();
+            }
+        });
+    }
+
+    public void write(StringBuilder out) {
+        out.append("# HELP sdm_account_concurrency_limit Current SDM concurrency limit of each account.\n");
+        out.append("# TYPE sdm_account_concurrency_limit gauge\n");
+        for (Limit limit : limits.values()) {
+            out.append("sdm_account_concurrency_limit{account=\"");
+            PipelineMetrics.appendLabelValue(out, limit.account);
+            out.append("\"} ").append(limit.getLimit()).append('\n');
+        }
+        out.append("# HELP sdm_account_breaker_open Whether the SDM circuit breaker of each account is open.\n");
+        out.append("# TYPE sdm_account_breaker_open gauge\n");
+        for (Limit limit : limits.values()) {
+            out.append("sdm_account_breaker_open{account=\"");
+            PipelineMetrics.appendLabelValue(out, limit.account);
+            out.append("\"} ").append(limit.getState() == State.OPEN ? 1 : 0).append('\n');
+        }
+    }
+
+    State getState(String account) {
+        Limit limit = limits.get(account);
+        return limit == null ? State.CLOSED : limit.getState();
+    }
+
+    int getLimit(String account) {
+        Limit limit = limits.get(account);
+        return limit == null ? initialLimit : limit.getLimit();
+    }
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public class Permit {
+        private final Limit limit;
+        private final long startNanos;
+
+        private Permit(Limit limit, long startNanos) {
+            this.limit = limit;
+            this.startNanos = startNanos;
+        }
+
+        public void success() {
+            limit.onSuccess(clock.getAsLong() - startNanos);
+        }
+
+        public void failure() {
+            limit.onFailure(clock.getAsLong());
+        }
+
+        /**
+         * Gives the permit back without judging SDM, e.g. when SDM asked the account to slow down and the
+         * {@link AccountScheduler} deals with it.
+         */
+        public void release() {
+            limit.onRelease();
+        }
+    }
+
+    private class Limit {
+        private final String account;
+        private double limit = initialLimit;
+        private int inFlight;
+        private double smoothedRttNanos;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openUntilNanos;
+
+        private Limit(String account) {
+            this.account = account;
+        }
+
+        /**
+         * @return 0 if a permit was taken, otherwise how long to wait before trying again.
+         */
+        private synchronized long tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (now - openUntilNanos < 0) {
+                    return openUntilNanos - now;
+                }
+                state = State.HALF_OPEN;
+                limit = minLimit;
+                LOGGER.info("Probing SDM for account {}", account);
+            }
+            if (inFlight >= (int) limit) {
+                return TimeUnit.MILLISECONDS.toNanos(deferMillis);
+            }
+            inFlight++;
+            return 0;
+        }
+
+        private synchronized void onSuccess(long rttNanos) {
+            boolean saturated = inFlight >= limit / 2;
+            inFlight--;
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                LOGGER.info("SDM recovered for account {}", account);
+            }
+
+            if (smoothedRttNanos == 0) {
+                smoothedRttNanos = rttNanos;
+            }
+            if (rttNanos > smoothedRttNanos * latencyTolerance) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            smoothedRttNanos += (rttNanos - smoothedRttNanos) * 0.05;
+        }
+
+        private synchronized void onFailure(long now) {
+            inFlight--;
+            limit = Math.max(minLimit, limit * backoffRatio);
+            if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(openMillis);
+                consecutiveFailures = 0;
+                LOGGER.warn("Opened SDM circuit breaker for account {} for {}ms", account, openMillis);
+            }
+        }
+
+        private synchronized void onRelease() {
+            inFlight--;
+        }
+
+        private synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        private synchronized State getState() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package org.acme.github.issues;
+
+import com.cloudbees.sdm.api.AccessTokenException;
+import io.quarkus.runtime.ShutdownEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import org.apache.http.client.utils.DateUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-account token bucket in front of SDM, covering the GraphQL endpoint and the account token endpoint. Calls wait
+ * in the account's queue for a token instead of failing, live webhook work ahead of background work from the
+ * {@link Backfiller} and the {@link DeadLetterReplayer}.
+ *
+ * <p>Each account starts at {@code sdm.rate.initial} calls per second, with bursts of up to {@code sdm.rate.burst},
+ * and the rate is learned from SDM. A 429, or a 503 carrying {@code Retry-After}, cuts it by
+ * {@code sdm.rate.backoff.ratio} and pauses the account for the {@code Retry-After}, or {@code sdm.rate.retry.millis}
+ * without one; the call is then sent again. {@code X-RateLimit-Remaining} and {@code X-RateLimit-Reset} on a response,
+ * see {@link RateLimitFilter}, set the rate to what is left of the window. Otherwise, while calls are waiting for
+ * tokens, the rate doubles every second until SDM first pushes back and then grows by one call per second every
+ * second, up to {@code sdm.rate.max}. A call that waited {@code sdm.rate.max.wait.millis} in all, or that finds
+ * {@code sdm.rate.queue.capacity} calls of its priority queued, fails with a {@link RetryLaterException} so its
+ * delivery goes back to the durable queue.
+ *
+ * <p>Rate limit responses are this class's to handle: the {@link AccountLimiter} permit of a call is released without
+ * counting against the account, and time spent waiting here is not part of the call's round trip.
+ */
+@ApplicationScoped
+public class AccountScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountScheduler.class);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    static final String RETRY_AFTER = "Retry-After";
+
+    @ConfigProperty(name = "sdm.rate.initial", defaultValue = "20")
+    double initialRate;
+
+    @ConfigProperty(name = "sdm.rate.min", defaultValue = "1")
+    double minRate;
+
+    @ConfigProperty(name = "sdm.rate.max", defaultValue = "500")
+    double maxRate;
+
+    @ConfigProperty(name = "sdm.rate.burst", defaultValue = "10")
+    int burst;
+
+    @ConfigProperty(name = "sdm.rate.backoff.ratio", defaultValue = "0.7")
+    double backoffRatio;
+
+    @ConfigProperty(name = "sdm.rate.retry.millis", defaultValue = "1000")
+    long retryMillis;
+
+    @ConfigProperty(name = "sdm.rate.max.wait.millis", defaultValue = "30000")
+    long maxWaitMillis;
+
+    @ConfigProperty(name = "sdm.rate.queue.capacity", defaultValue = "1000")
+    int queueCapacity;
+
+    @ConfigProperty(name = "sdm.rate.threads", defaultValue = "4")
+    int threads;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "sdm-scheduler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        executor = scheduler;
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        executor.shutdown();
+    }
+
+    /**
+     * @param task starts the call to SDM. Runs once the account has a token, and again whenever SDM answers that the
+     * account is over its rate limit.
+     * @return a future completing like the last attempt of the task, or failing with a {@link RetryLaterException} if
+     * the call could not be made in time.
+     */
+    public <T> CompletableFuture<T> schedule(String account, Priority priority, Supplier<CompletableFuture<T>> task) {
+        Bucket bucket = buckets.computeIfAbsent(account, Bucket::new);
+        Call<T> call = new Call<>(priority, task, System.nanoTime());
+        synchronized (bucket) {
+            Deque<Call<?>> queue = bucket.queue(priority);
+            if (queue.size() >= queueCapacity) {
+                call.result.completeExceptionally(
+                        new RetryLaterException("Too many SDM calls queued for account " + account, retryMillis));
+                return call.result;
+            }
+            queue.addLast(call);
+        }
+        drain(bucket);
+        return call.result;
+    }
+
+    /**
+     * Takes the rate limit window SDM reported for the account: {@code remaining} calls over the next
+     * {@code windowMillis}.
+     */
+    void observe(String account, long remaining, long windowMillis) {
+        if (windowMillis <= 0) {
+            return;
+        }
+        Bucket bucket = buckets.computeIfAbsent(account, Bucket::new);
+        synchronized (bucket) {
+            bucket.onWindow(System.nanoTime(), remaining, windowMillis);
+        }
+        drain(bucket);
+    }
+
+    public void write(StringBuilder out) {
+        out.append("# HELP sdm_account_rate_limit Current SDM calls per second allowed for each account.\n");
+        out.append("# TYPE sdm_account_rate_limit gauge\n");
+        for (Bucket bucket : buckets.values()) {
+            out.append("sdm_account_rate_limit{account=\"");
+            PipelineMetrics.appendLabelValue(out, bucket.account);
+            out.append("\"} ").append(bucket.getRate()).append('\n');
+        }
+        out.append("# HELP sdm_account_queued_calls SDM calls waiting for a token, per account and priority.\n");
+        out.append("# TYPE sdm_account_queued_calls gauge\n");
+        for (Bucket bucket : buckets.values()) {
+            for (Priority priority : Priority.values()) {
+                out.append("sdm_account_queued_calls{account=\"");
+                PipelineMetrics.appendLabelValue(out, bucket.account);
+                out.append("\",priority=\"").append(priority.name().toLowerCase()).append("\"} ")
+                        .append(bucket.getQueued(priority)).append('\n');
+            }
+        }
+        out.append("# HELP sdm_account_rate_limited_total SDM responses asking an account to slow down.\n");
+        out.append("# TYPE sdm_account_rate_limited_total counter\n");
+        for (Bucket bucket : buckets.values()) {
+            out.append("sdm_account_rate_limited_total{account=\"");
+            PipelineMetrics.appendLabelValue(out, bucket.account);
+            out.append("\"} ").append(bucket.getRateLimited()).append('\n');
+        }
+    }
+
+    double getRate(String account) {
+        Bucket bucket = buckets.get(account);
+        return bucket == null ? initialRate : bucket.getRate();
+    }
+
+    /**
+     * Sends the calls the account has tokens for, in priority order, and wakes up again when the next one is due.
+     */
+    private void drain(Bucket bucket) {
+        List<Call<?>> ready = new ArrayList<>();
+        List<Call<?>> expired = new ArrayList<>();
+        long wakeupNanos = 0;
+        long retryAfterMillis;
+        synchronized (bucket) {
+            long now = System.nanoTime();
+            bucket.expire(now - TimeUnit.MILLISECONDS.toNanos(maxWaitMillis), expired);
+            bucket.refill(now);
+            while (bucket.tokens >= 1 && !bucket.isPaused(now) && bucket.hasQueued()) {
+                bucket.tokens--;
+                Call<?> call = bucket.poll();
+                // only growth while the rate held calls back says anything about the rate SDM can take
+                call.saturated = bucket.tokens < 1;
+                ready.add(call);
+            }
+            if (bucket.hasQueued() && !bucket.wakeupScheduled) {
+                bucket.wakeupScheduled = true;
+                wakeupNanos = bucket.nanosUntilNextToken(now);
+            }
+            retryAfterMillis = bucket.retryAfterMillis(now);
+        }
+
+        for (Call<?> call : expired) {
+            call.result.completeExceptionally(new RetryLaterException(
+                    "SDM calls for account " + bucket.account + " are rate limited", retryAfterMillis));
+        }
+        for (Call<?> call : ready) {
+            send(bucket, call);
+        }
+        if (wakeupNanos > 0) {
+            try {
+                executor.schedule(() -> {
+                    synchronized (bucket) {
+                        bucket.wakeupScheduled = false;
+                    }
+                    drain(bucket);
+                }, wakeupNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // shutting down, the deliveries behind the calls still queued are retried from the durable queue
+                LOGGER.debug("Dropping queued SDM calls for account {}", bucket.account);
+            }
+        }
+    }
+
+    private <T> void send(Bucket bucket, Call<T> call) {
+        CompletableFuture<T> attempt;
+        try {
+            attempt = call.task.get();
+        } catch (RuntimeException e) {
+            attempt = new CompletableFuture<>();
+            attempt.completeExceptionally(e);
+        }
+
+        attempt.whenComplete((value, e) -> {
+            if (e == null) {
+                synchronized (bucket) {
+                    bucket.onSuccess(call.saturated);
+                }
+                call.result.complete(value);
+                return;
+            }
+
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            long retryAfterMillis = rateLimitedFor(cause);
+            if (retryAfterMillis < 0) {
+                call.result.completeExceptionally(cause);
+                return;
+            }
+            boolean expired;
+            synchronized (bucket) {
+                long now = System.nanoTime();
+                bucket.onRateLimited(now, retryAfterMillis);
+                expired = now - call.queuedAtNanos >= TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                if (!expired) {
+                    // it already waited its turn once
+                    bucket.queue(call.priority).addFirst(call);
+                }
+            }
+            if (expired) {
+                call.result.completeExceptionally(new RetryLaterException(
+                        "SDM calls for account " + bucket.account + " are rate limited", retryAfterMillis));
+            }
+            drain(bucket);
+        });
+    }
+
+    /**
+     * @return how long SDM asked to wait if the failure is a rate limit response, otherwise -1. A 503 only counts when
+     * it says how long to wait, so an outage still fails deliveries and eventually turns them into dead letters.
+     */
+    long rateLimitedFor(Throwable cause) {
+        return rateLimitedFor(cause, retryMillis);
+    }
+
+    /**
+     * @return whether the failure is a rate limit response, see {@link #rateLimitedFor(Throwable)}.
+     */
+    static boolean isRateLimited(Throwable cause) {
+        return rateLimitedFor(cause, 0) >= 0;
+    }
+
+    private static long rateLimitedFor(Throwable cause, long defaultMillis) {
+        int status;
+        String retryAfter;
+        if (cause instanceof WebApplicationException) {
+            Response response = ((WebApplicationException) cause).getResponse();
+            status = response.getStatus();
+            retryAfter = response.getHeaderString(RETRY_AFTER);
+        } else if (cause instanceof AccessTokenException) {
+            status = ((AccessTokenException) cause).getStatus();
+            retryAfter = ((AccessTokenException) cause).getRetryAfter();
+        } else {
+            return -1;
+        }
+
+        long retryAfterMillis = parseRetryAfter(retryAfter, System.currentTimeMillis());
+        if (status == 429) {
+            return retryAfterMillis >= 0 ? retryAfterMillis : defaultMillis;
+        }
+        return status == 503 ? retryAfterMillis : -1;
+    }
+
+    /**
+     * @return the delay given by a {@code Retry-After} value, in seconds or as an HTTP date, or -1 if there is none.
+     */
+    static long parseRetryAfter(String value, long nowMillis) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        String trimmed = value.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(trimmed)));
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(trimmed);
+            return date == null ? -1 : Math.max(0, date.getTime() - nowMillis);
+        }
+    }
+
+    public enum Priority {
+        /**
+         * Webhook deliveries, always served first.
+         */
+        LIVE,
+        /**
+         * Backfills and dead letter replays, served when no live call is waiting.
+         */
+        BACKGROUND
+    }
+
+    private static class Call<T> {
+        private final Priority priority;
+        private final Supplier<CompletableFuture<T>> task;
+        private final long queuedAtNanos;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private boolean saturated;
+
+        private Call(Priority priority, Supplier<CompletableFuture<T>> task, long queuedAtNanos) {
+            this.priority = priority;
+            this.task = task;
+            this.queuedAtNanos = queuedAtNanos;
+        }
+    }
+
+    /**
+     * Guarded by its own monitor.
+     */
+    private class Bucket {
+        private final String account;
+        private final Deque<Call<?>> live = new ArrayDeque<>();
+        private final Deque<Call<?>> background = new ArrayDeque<>();
+        private double rate = initialRate;
+        private double tokens = burst;
+        private long refilledAtNanos;
+        private long pausedUntilNanos;
+        private boolean learned;
+        private boolean wakeupScheduled;
+        private long rateLimited;
+
+        private Bucket(String account) {
+            this.account = account;
+            refilledAtNanos = pausedUntilNanos = System.nanoTime();
+        }
+
+        private Deque<Call<?>> queue(Priority priority) {
+            return priority == Priority.LIVE ? live : background;
+        }
+
+        private boolean hasQueued() {
+            return !live.isEmpty() || !background.isEmpty();
+        }
+
+        private Call<?> poll() {
+            return live.isEmpty() ? background.poll() : live.poll();
+        }
+
+        private void expire(long queuedBeforeNanos, List<Call<?>> expired) {
+            expire(live, queuedBeforeNanos, expired);
+            expire(background, queuedBeforeNanos, expired);
+        }
+
+        private void expire(Deque<Call<?>> queue, long queuedBeforeNanos, List<Call<?>> expired) {
+            // oldest first, calls sent again went back to the front
+            while (!queue.isEmpty() && queue.peek().queuedAtNanos - queuedBeforeNanos <= 0) {
+                expired.add(queue.poll());
+            }
+        }
+
+        private void refill(long now) {
+            if (now - refilledAtNanos > 0) {
+                tokens = Math.min(burst, tokens + (now - refilledAtNanos) * rate / NANOS_PER_SECOND);
+                refilledAtNanos = now;
+            }
+        }
+
+        private boolean isPaused(long now) {
+            return pausedUntilNanos - now > 0;
+        }
+
+        private long nanosUntilNextToken(long now) {
+            long untilRefill = Math.max(0, refilledAtNanos - now);
+            return Math.max(1, untilRefill + (long) Math.ceil((1 - tokens) * NANOS_PER_SECOND / rate));
+        }
+
+        private long retryAfterMillis(long now) {
+            return Math.max(retryMillis, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - now));
+        }
+
+        private void pause(long now, long millis) {
+            long until = now + TimeUnit.MILLISECONDS.toNanos(millis);
+            if (until - pausedUntilNanos > 0) {
+                pausedUntilNanos = until;
+            }
+            // nothing accrues while paused, so sending resumes one call at a time rather than with a burst
+            tokens = 0;
+            if (pausedUntilNanos - refilledAtNanos > 0) {
+                refilledAtNanos = pausedUntilNanos;
+            }
+        }
+
+        private void onSuccess(boolean saturated) {
+            if (saturated) {
+                rate = Math.min(maxRate, rate + (learned ? 1 / rate : 1));
+            }
+        }
+
+        private void onRateLimited(long now, long retryAfterMillis) {
+            rateLimited++;
+            if (!isPaused(now)) {
+                // the other calls sent before the pause will likely be turned away too, slow down once for all
+                rate = Math.max(minRate, rate * backoffRatio);
+                learned = true;
+                LOGGER.info("SDM is rate limiting account {}, pausing {}ms then sending {}/s", account,
+                        retryAfterMillis, String.format("%.1f", rate));
+            }
+            pause(now, retryAfterMillis);
+        }
+
+        private void onWindow(long now, long remaining, long windowMillis) {
+            learned = true;
+            if (remaining <= 0) {
+                pause(now, windowMillis);
+                return;
+            }
+            rate = Math.max(minRate, Math.min(maxRate, remaining * 1000.0 / windowMillis));
+        }
+
+        private synchronized double getRate() {
+            return rate;
+        }
+
+        private synchronized int getQueued(Priority priority) {
+            return queue(priority).size();
+        }
+
+        private synchronized long getRateLimited() {
+            return rateLimited;
+        }
+    }
+}
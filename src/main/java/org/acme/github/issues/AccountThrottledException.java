@@ -0,0 +1,13 @@
+package org.acme.github.issues;
+
+/**
+ * Thrown instead of calling SDM for an account that is at its concurrency limit or whose circuit breaker is open.
+ * The delivery is put back on the queue without counting as a failed attempt.
+ */
+public class AccountThrottledException extends RetryLaterException {
+    private static final long serialVersionUID = 1L;
+
+    public AccountThrottledException(String account, long retryAfterMillis) {
+        super("SDM calls for account " + account + " are throttled", retryAfterMillis);
+    }
+}
@@ -4,8 +4,13 @@ import com.cloudbees.sdm.api.AppTokens;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.acme.github.issues.PipelineMetrics.Outcome;
+import org.acme.github.issues.PipelineMetrics.Stage;
 import org.apache.commons.io.IOUtils;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
@@ -24,6 +29,12 @@ public class ApiManager {
     @ConfigProperty(name = "sdm.app.id", defaultValue = "24")
     String appId;
 
+    @Inject
+    HttpTransport httpTransport;
+
+    @Inject
+    PipelineMetrics metrics;
+
     public AppTokens appTokens;
 
     @PostConstruct
@@ -34,16 +45,44 @@ public class ApiManager {
         } catch (IOException e) {
             LOGGER.error("Error parsing private key file", e);
         }
-        appTokens = new AppTokens(sdmApiUrl, privateKeyValue, appId);
+        appTokens = new AppTokens(sdmApiUrl, privateKeyValue, appId, httpTransport.getHttpClient(),
+                httpTransport.getAsyncHttpClient());
+    }
+
+    @PreDestroy
+    public void close() {
+        appTokens.close();
+    }
+
+    /**
+     * Parses the app's private key and signs an app token, so the first delivery does not pay for registering the
+     * BouncyCastle provider, reading the PEM and warming up ES256 signing.
+     */
+    void warmUp() throws IOException {
+        appTokens.appAccessToken();
     }
 
     String createToken(String account) {
+        long start = System.nanoTime();
         try {
-            return appTokens.getAccountAccessToken(account);
+            String token = appTokens.getAccountAccessToken(account);
+            metrics.record(account, Stage.TOKEN, Outcome.OK, start);
+            return token;
         } catch (IOException e) {
             LOGGER.error("Error getting token", e);
         }
 
+        metrics.record(account, Stage.TOKEN, Outcome.FAILED, start);
         return null;
     }
+
+    CompletableFuture<String> createTokenAsync(String account) {
+        long start = System.nanoTime();
+        return appTokens.getAccountAccessTokenAsync(account).whenComplete((token, e) -> {
+            if (e != null) {
+                LOGGER.error("Error getting token", e);
+            }
+            metrics.record(account, Stage.TOKEN, e == null ? Outcome.OK : Outcome.FAILED, start);
+        });
+    }
 }
@@ -0,0 +1,70 @@
+package org.acme.github.issues;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.acme.github.issues.backfill.GeneratedIssueSource;
+import org.acme.github.issues.backfill.IssueSource;
+import org.acme.github.issues.backfill.NdjsonIssueSource;
+import org.acme.github.issues.model.BackfillStatus;
+
+/**
+ * Starts, inspects and stops {@link Backfiller} runs. A run reads either an NDJSON export on the server
+ * ({@code ?file=/path/to/issues.ndjson}) or generated issues for one installation
+ * ({@code ?installation=123&count=200000}).
+ */
+@Path("/backfill/{name}")
+@Produces(MediaType.APPLICATION_JSON)
+public class BackfillResource {
+
+    @Inject
+    Backfiller backfiller;
+
+    @POST
+    public Response start(@PathParam("name") String name, @QueryParam("file") String file,
+                          @QueryParam("installation") Integer installation, @QueryParam("count") Long count)
+            throws IOException {
+        IssueSource source;
+        if (file != null) {
+            try {
+                source = new NdjsonIssueSource(Paths.get(file));
+            } catch (NoSuchFileException e) {
+                return Response.status(Response.Status.BAD_REQUEST).build();
+            }
+        } else if (installation != null && count != null) {
+            source = new GeneratedIssueSource(installation, count);
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        try {
+            return Response.accepted(backfiller.start(name, source)).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(backfiller.status(name)).build();
+        }
+    }
+
+    @GET
+    public Response status(@PathParam("name") String name) {
+        return found(backfiller.status(name));
+    }
+
+    @DELETE
+    public Response stop(@PathParam("name") String name) {
+        return found(backfiller.stop(name));
+    }
+
+    private static Response found(BackfillStatus status) {
+        return status == null ? Response.status(Response.Status.NOT_FOUND).build() : Response.ok(status).build();
+    }
+}
@@ -0,0 +1,290 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.acme.github.issues.backfill.IssueSource;
+import org.acme.github.issues.dao.BackfillCheckpointDao;
+import org.acme.github.issues.model.BackfillStatus;
+import org.acme.github.issues.model.IssueEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads existing issues into SDM from an {@link IssueSource}, e.g. when an organisation with a long history installs
+ * the app. Issues go through {@link WebhookProcessor#process(IssueEvent)}, so they are batched and limited per
+ * account like live events, and a backfilled snapshot never overwrites a newer one from a webhook.
+ *
+ * <p>Each run reads its source on one thread, paced to {@code backfill.max.per.second} so live traffic keeps most of
+ * the SDM capacity, with at most {@code backfill.max.in.flight} issues open at once. Every
+ * {@code backfill.checkpoint.millis} the index below which every record is done is saved under the run's name, and a
+ * run started again with the same name and source resumes from there.
+ */
+@ApplicationScoped
+public class Backfiller {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Backfiller.class);
+
+    @ConfigProperty(name = "backfill.max.per.second", defaultValue = "100")
+    double maxPerSecond;
+
+    @ConfigProperty(name = "backfill.max.in.flight", defaultValue = "200")
+    int maxInFlight;
+
+    @ConfigProperty(name = "backfill.checkpoint.millis", defaultValue = "5000")
+    long checkpointMillis;
+
+    @Inject
+    Jdbi jdbi;
+
+    @Inject
+    WebhookProcessor webhookProcessor;
+
+    private BackfillCheckpointDao dao;
+    private ScheduledExecutorService scheduler;
+    private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        dao = jdbi.onDemand(BackfillCheckpointDao.class);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "backfill-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        runs.values().forEach(Run::stop);
+        scheduler.shutdown();
+    }
+
+    /**
+     * Starts reading {@code source} under {@code name}, resuming from that name's checkpoint if it was taken for the
+     * same source. The source is closed when the run ends.
+     *
+     * @throws IllegalStateException if a run with that name is still active.
+     */
+    public BackfillStatus start(String name, IssueSource source) throws IOException {
+        Run run = new Run(name, source);
+        Run existing = runs.putIfAbsent(name, run);
+        if (existing != null && existing.state == State.RUNNING) {
+            source.close();
+            throw new IllegalStateException("Backfill " + name + " is already running");
+        }
+        if (existing != null && !runs.replace(name, existing, run)) {
+            // another request replaced the finished run first
+            source.close();
+            throw new IllegalStateException("Backfill " + name + " is already running");
+        }
+
+        try {
+            run.start();
+        } catch (IOException | RuntimeException e) {
+            runs.remove(name, run);
+            source.close();
+            throw e;
+        }
+        return run.status();
+    }
+
+    public BackfillStatus status(String name) {
+        Run run = runs.get(name);
+        return run == null ? null : run.status();
+    }
+
+    /**
+     * Stops a run after saving its checkpoint; issues already sent still complete.
+     */
+    public BackfillStatus stop(String name) {
+        Run run = runs.get(name);
+        if (run == null) {
+            return null;
+        }
+        run.stop();
+        return run.status();
+    }
+
+    private enum State {
+        RUNNING,
+        STOPPED,
+        COMPLETED,
+        FAILED
+    }
+
+    private class Run {
+        private final String name;
+        private final IssueSource source;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+        private final LongAdder applied = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile State state = State.RUNNING;
+        private volatile long startIndex;
+        private volatile long dispatchedIndex;
+        private Thread reader;
+
+        private Run(String name, IssueSource source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        private void start() throws IOException {
+            startIndex = dao.find(name, source.describe()).orElse(0L);
+            if (startIndex > 0) {
+                source.skip(startIndex);
+                LOGGER.info("Resuming backfill {} from {} at record {}", name, source.describe(), startIndex);
+            }
+            dispatchedIndex = startIndex;
+
+            reader = new Thread(this::read, "backfill-" + name);
+            reader.setDaemon(true);
+            reader.start();
+            scheduler.schedule(this::checkpoint, checkpointMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void read() {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxPerSecond);
+            long nextSendNanos = System.nanoTime();
+            try {
+                while (state == State.RUNNING) {
+                    long wait = nextSendNanos - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    nextSendNanos = Math.max(nextSendNanos, System.nanoTime() - intervalNanos) + intervalNanos;
+
+                    long index = dispatchedIndex;
+                    IssueEvent event;
+                    try {
+                        event = source.next();
+                    } catch (IllegalArgumentException e) {
+                        LOGGER.warn("Skipping unreadable record {} of backfill {}: {}", index, name, e.getMessage());
+                        failed.increment();
+                        dispatchedIndex = index + 1;
+                        continue;
+                    }
+                    if (event == null) {
+                        break;
+                    }
+
+                    inFlight.acquire();
+                    pending.add(index);
+                    dispatchedIndex = index + 1;
+                    submit(index, event);
+                }
+
+                // let the issues still in flight finish before the final checkpoint
+                inFlight.acquire(maxInFlight);
+                inFlight.release(maxInFlight);
+                if (state == State.RUNNING) {
+                    state = State.COMPLETED;
+                    LOGGER.info("Completed backfill {}: {} applied, {} failed", name, applied.sum(), failed.sum());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = State.STOPPED;
+            } catch (Exception e) {
+                LOGGER.error("Backfill {} failed at record {}", name, dispatchedIndex, e);
+                state = State.FAILED;
+            } finally {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Error closing backfill source {}", source.describe(), e);
+                }
+                scheduler.execute(this::checkpoint);
+            }
+        }
+
+        private void submit(long index, IssueEvent event) {
+            CompletableFuture<Void> result;
+            try {
+                result = webhookProcessor.process(event);
+            } catch (Exception e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+
+            result.whenComplete((v, e) -> {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (cause instanceof RetryLaterException) {
+                    if (state == State.RUNNING) {
+                        // the account or the issue's lane is busy, keep the slot and try again once it may have room
+                        scheduler.schedule(() -> submit(index, event),
+                                ((RetryLaterException) cause).getRetryAfterMillis(), TimeUnit.MILLISECONDS);
+                    } else {
+                        // stays pending, so a resumed run picks it up again
+                        inFlight.release();
+                    }
+                    return;
+                }
+
+                if (e == null) {
+                    applied.increment();
+                } else {
+                    failed.increment();
+                    LOGGER.warn("Could not backfill record {} of {}", index, name, cause);
+                }
+                pending.remove(index);
+                inFlight.release();
+            });
+        }
+
+        /**
+         * @return the index below which every record has been applied or given up on.
+         */
+        private long nextIndex() {
+            long dispatched = dispatchedIndex;
+            Long lowestPending = pending.ceiling(0L);
+            return lowestPending == null ? dispatched : Math.min(lowestPending, dispatched);
+        }
+
+        private void checkpoint() {
+            try {
+                dao.save(name, source.describe(), nextIndex());
+            } catch (Exception e) {
+                LOGGER.warn("Could not save checkpoint of backfill {}", name, e);
+            }
+            if (state == State.RUNNING) {
+                scheduler.schedule(this::checkpoint, checkpointMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void stop() {
+            if (state == State.RUNNING) {
+                state = State.STOPPED;
+                reader.interrupt();
+            }
+        }
+
+        private BackfillStatus status() {
+            BackfillStatus status = new BackfillStatus();
+            status.setName(name);
+            status.setSource(source.describe());
+            status.setState(state.name().toLowerCase());
+            status.setStartIndex(startIndex);
+            status.setNextIndex(nextIndex());
+            status.setDispatched(dispatchedIndex - startIndex);
+            status.setApplied(applied.sum());
+            status.setFailed(failed.sum());
+            status.setInFlight(pending.size());
+            return status;
+        }
+    }
+}
@@ -1,85 +1,262 @@
 package org.acme.github.issues;
 
+import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.Charset;
-import java.util.Collections;
+import java.io.StringReader;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.json.Json;
+import javax.json.JsonArray;
 import javax.json.JsonObject;
+import javax.json.JsonReader;
 import javax.json.JsonValue;
-import org.acme.github.issues.client.SDMApiClient;
+import org.acme.github.issues.dao.ConfigSnapshotDao;
 import org.acme.github.issues.model.AppConfig;
+import org.acme.github.issues.model.Installations;
 import org.acme.github.issues.model.SDMAuth;
-import org.apache.commons.io.IOUtils;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jdbi.v3.core.Jdbi;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Registry of the app's installations. The config is reloaded from SDM every {@code config.refresh.millis} and
+ * whenever GitHub reports an installation change; readers always see a complete snapshot, and the last good snapshot
+ * is kept when a reload fails. Every successful reload is saved to the {@code config_snapshots} table, so a restarted
+ * node can serve it before SDM has answered.
+ *
+ * <p>Deliveries are never dropped for want of a config: until one has been loaded, and for an installation the loaded
+ * one does not know yet, {@link #lookupAccount(int)} asks for a reload and throws a {@link RetryLaterException}. An
+ * installation is only given up on once it is still unknown {@code config.unknown.installation.millis} after it was
+ * first seen, and a reload has succeeded since.
+ */
 @ApplicationScoped
 public class ConfigManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfigManager.class);
+    private static final int MAX_UNKNOWN_INSTALLATIONS = 10000;
 
     @Inject
     @ConfigProperty(name = "sdm.app.id", defaultValue = "24")
     String appId;
 
+    @ConfigProperty(name = "config.refresh.millis", defaultValue = "300000")
+    long refreshMillis;
+
+    @ConfigProperty(name = "config.retry.millis", defaultValue = "10000")
+    long retryMillis;
+
+    @ConfigProperty(name = "config.unknown.installation.millis", defaultValue = "600000")
+    long unknownInstallationMillis;
+
     @Inject
-    @RestClient
-    SDMApiClient sdmApiClient;
+    GraphQLQueries graphQLQueries;
 
     @Inject
     ApiManager apiManager;
 
-    private JsonObject configQuery;
-    private Map<String, AppConfig> installations;
+    @Inject
+    PipelineMetrics metrics;
+
+    @Inject
+    Jdbi jdbi;
+
+    private ConfigSnapshotDao dao;
+
+    private JsonObject configVariables;
+    private volatile Installations installations;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final AtomicBoolean retryPending = new AtomicBoolean();
+    private final Map<Integer, Long> unknownSince = new ConcurrentHashMap<>();
+    private volatile long loadedAtMillis;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        dao = jdbi.onDemand(ConfigSnapshotDao.class);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "config-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+    }
 
     public Map<String, AppConfig> getInstallations() {
-        if (installations == null) {
+        return snapshot().getByAccount();
+    }
+
+    /**
+     * @return the account of the installation, or nothing if it has stayed unknown for good.
+     * @throws RetryLaterException if no config is loaded yet, or the installation may be missing from a stale one.
+     */
+    public Optional<String> lookupAccount(int installationId) {
+        Installations current = snapshot();
+        if (current == Installations.EMPTY) {
+            throw new RetryLaterException("No installation config loaded yet", retryMillis);
+        }
+
+        String account = current.getAccount(installationId);
+        if (account != null) {
+            if (!unknownSince.isEmpty()) {
+                unknownSince.remove(installationId);
+            }
+            return Optional.of(account);
+        }
+
+        long now = System.currentTimeMillis();
+        if (unknownSince.size() > MAX_UNKNOWN_INSTALLATIONS) {
+            unknownSince.clear();
+        }
+        long firstSeen = unknownSince.computeIfAbsent(installationId, id -> now);
+        if (now - firstSeen >= unknownInstallationMillis && loadedAtMillis > firstSeen) {
+            return Optional.empty();
+        }
+        if (now - loadedAtMillis >= retryMillis) {
+            // e.g. installed a moment ago, before GitHub's installation event made us reload
+            requestRefresh();
+        }
+        throw new RetryLaterException("Installation " + installationId + " is not in the config yet", retryMillis);
+    }
+
+    /**
+     * Schedules an immediate reload, e.g. after GitHub reported an installation was added or changed. Requests made
+     * while a reload is already waiting to run are folded into it.
+     */
+    public void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                refreshPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    /**
+     * Starts serving the config saved by the last successful reload, unless a config has been loaded already.
+     *
+     * @return whether a saved config was restored
+     */
+    public synchronized boolean restoreSnapshot() {
+        if (installations != null) {
+            return false;
+        }
+
+        Optional<String> saved;
+        try {
+            saved = dao.find(appId);
+        } catch (Exception e) {
+            LOGGER.warn("Could not read the saved installation config", e);
+            return false;
+        }
+        if (!saved.isPresent()) {
+            return false;
+        }
+
+        try (JsonReader reader = Json.createReader(new StringReader(saved.get()))) {
+            installations = new Installations(parseConfigs(reader.readArray()));
+        }
+        LOGGER.info("Restored {} installations from the saved config", installations.size());
+        return true;
+    }
+
+    private Installations snapshot() {
+        Installations current = installations;
+        if (current == null) {
+            synchronized (this) {
+                if (installations == null) {
+                    refresh();
+                }
+                current = installations;
+            }
+        }
+        return current == null ? Installations.EMPTY : current;
+    }
+
+    private synchronized void refresh() {
+        try {
             SDMAuth auth = new SDMAuth(apiManager.createToken("acme-issues"));
-            JsonObject response = sdmApiClient.executeQuery("acme-issues", auth, getConfigQuery());
+            JsonObject response = graphQLQueries.execute("acme-issues", auth,
+                    graphQLQueries.get(GraphQLQueries.CONFIG_QUERY), getConfigVariables());
 
             if (response.getJsonArray("errors").size() > 0) {
+                metrics.graphQLErrors("acme-issues", response.getJsonArray("errors").size());
                 LOGGER.error("Error fetching config: {}", response.getJsonArray("errors"));
-                return Collections.emptyMap();
+                refreshFailed();
+                return;
             }
 
-            installations = response.getJsonObject("data").getJsonObject("configs").getJsonArray("nodes")
-                    .stream()
-                    .map(JsonValue::asJsonObject)
-                    .collect(Collectors.toMap(
-                            e -> e.getString("account"),
-                            e -> new AppConfig(e.getJsonObject("config"))
-                    ));
+            JsonArray nodes = response.getJsonObject("data").getJsonObject("configs").getJsonArray("nodes");
+            Map<String, AppConfig> configs = parseConfigs(nodes);
+            installations = new Installations(configs);
+            loadedAtMillis = System.currentTimeMillis();
+            metrics.configReloaded(true);
+            LOGGER.info("Loaded {} installations", configs.size());
+            saveSnapshot(nodes);
+        } catch (Exception e) {
+            LOGGER.error("Error fetching config", e);
+            refreshFailed();
         }
+    }
 
-        return installations;
+    private static Map<String, AppConfig> parseConfigs(JsonArray nodes) {
+        return nodes.stream()
+                .map(JsonValue::asJsonObject)
+                .collect(Collectors.toMap(
+                        e -> e.getString("account"),
+                        e -> new AppConfig(e.getJsonObject("config"))
+                ));
     }
 
-    private JsonObject getConfigQuery() {
-        if (configQuery == null) {
-            String query = null;
-            try (InputStream is = WebhookResource.class.getResourceAsStream("config-query.graphql")) {
-                query = IOUtils.toString(is, Charset.defaultCharset());
-            } catch (IOException e) {
-                LOGGER.error("Error parsing data mutation query file", e);
-            }
+    private void saveSnapshot(JsonArray nodes) {
+        try {
+            dao.save(appId, nodes.toString());
+        } catch (Exception e) {
+            LOGGER.warn("Could not save the installation config", e);
+        }
+    }
+
+    /**
+     * Keeps serving the last good snapshot (or an empty one if there never was one, so callers don't all retry
+     * inline) and tries again after {@code config.retry.millis}.
+     */
+    private void refreshFailed() {
+        metrics.configReloaded(false);
+        if (installations == null) {
+            installations = Installations.EMPTY;
+        }
+        LOGGER.warn("Serving {} known installations, retrying config in {}ms", installations.size(), retryMillis);
+        if (retryPending.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                retryPending.set(false);
+                refresh();
+            }, retryMillis, TimeUnit.MILLISECONDS);
+        }
+    }
 
-            configQuery = Json.createObjectBuilder()
-                    .add("query", query)
-                    .add("variables", Json.createObjectBuilder()
-                        .add("appId", appId)
-                        .build())
-                    .add("operationName", "getConfigs")
+    private JsonObject getConfigVariables() {
+        if (configVariables == null) {
+            configVariables = Json.createObjectBuilder()
+                    .add("appId", appId)
                     .build();
         }
 
-        return configQuery;
+        return configVariables;
     }
 }
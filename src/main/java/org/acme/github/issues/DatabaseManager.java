@@ -5,9 +5,11 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Default;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.sql.DataSource;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.postgres.PostgresPlugin;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
 
 @ApplicationScoped
 public class DatabaseManager {
@@ -21,11 +23,13 @@ public class DatabaseManager {
     public void init() {
         jdbi = Jdbi.create(dataSource);
         jdbi.installPlugin(new PostgresPlugin());
+        jdbi.installPlugin(new SqlObjectPlugin());
     }
 
 
+    // Jdbi has no no-args constructor, so it cannot sit behind a normal-scoped client proxy
     @Produces
-    @ApplicationScoped
+    @Singleton
     public Jdbi provider() {
         return jdbi;
     }
@@ -0,0 +1,270 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.acme.github.issues.AccountScheduler.Priority;
+import org.acme.github.issues.dao.DeadLetterDao;
+import org.acme.github.issues.model.DeadLetter;
+import org.acme.github.issues.model.ReplayStatus;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the deliveries the {@link WebhookQueue} gave up on through the {@link WebhookProcessor} again, e.g. once SDM
+ * is back after an outage. A replay paces itself to {@code deadletter.replay.max.per.second} with at most
+ * {@code deadletter.replay.max.in.flight} dead letters open at once, so the backlog does not swamp SDM as it recovers;
+ * both can be overridden per replay, and its SDM calls give way to live ones. A dead letter that fails again is
+ * retried after {@code deadletter.replay.backoff.millis}, doubling with every attempt, up to
+ * {@code deadletter.replay.max.attempts} times per replay. Dead letters that succeed are deleted, the others stay with
+ * their last error.
+ */
+@ApplicationScoped
+public class DeadLetterReplayer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeadLetterReplayer.class);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    @ConfigProperty(name = "deadletter.replay.max.per.second", defaultValue = "50")
+    double maxPerSecond;
+
+    @ConfigProperty(name = "deadletter.replay.max.in.flight", defaultValue = "50")
+    int maxInFlight;
+
+    @ConfigProperty(name = "deadletter.replay.max.attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "deadletter.replay.backoff.millis", defaultValue = "1000")
+    long backoffMillis;
+
+    /**
+     * How long a claimed dead letter is hidden from other replays. Must cover the wait for its turn and processing.
+     */
+    @ConfigProperty(name = "deadletter.replay.lease.millis", defaultValue = "300000")
+    long leaseMillis;
+
+    @ConfigProperty(name = "deadletter.replay.poll.millis", defaultValue = "1000")
+    long pollMillis;
+
+    @Inject
+    Jdbi jdbi;
+
+    @Inject
+    WebhookProcessor webhookProcessor;
+
+    private DeadLetterDao dao;
+    private volatile Run run;
+
+    @PostConstruct
+    public void init() {
+        dao = jdbi.onDemand(DeadLetterDao.class);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        Run current = run;
+        if (current != null) {
+            current.stop();
+        }
+    }
+
+    /**
+     * Starts replaying every dead letter, each with a fresh attempt budget.
+     *
+     * @param perSecond overrides {@code deadletter.replay.max.per.second} when not {@code null}.
+     * @param inFlight overrides {@code deadletter.replay.max.in.flight} when not {@code null}.
+     * @throws IllegalStateException if a replay is still running.
+     */
+    public synchronized ReplayStatus start(Double perSecond, Integer inFlight) {
+        if (run != null && run.state == State.RUNNING) {
+            throw new IllegalStateException("A dead letter replay is already running");
+        }
+        double rate = perSecond != null ? perSecond : maxPerSecond;
+        int concurrency = inFlight != null ? inFlight : maxInFlight;
+        if (rate <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("Replay rate and concurrency must be positive");
+        }
+
+        run = new Run(rate, concurrency);
+        run.start();
+        return run.status();
+    }
+
+    /**
+     * @return the current or last replay, or {@code null} if none was started since this node started.
+     */
+    public ReplayStatus status() {
+        Run current = run;
+        return current == null ? null : current.status();
+    }
+
+    /**
+     * Stops claiming dead letters; those already sent still complete.
+     */
+    public ReplayStatus stop() {
+        Run current = run;
+        if (current == null) {
+            return null;
+        }
+        current.stop();
+        return current.status();
+    }
+
+    public long count() {
+        return dao.count();
+    }
+
+    static String describe(Throwable cause) {
+        String error = String.valueOf(cause);
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private enum State {
+        RUNNING,
+        STOPPED,
+        COMPLETED,
+        FAILED
+    }
+
+    private class Run {
+        private final double perSecond;
+        private final int concurrency;
+        private final Semaphore inFlight;
+        private final LongAdder dispatched = new LongAdder();
+        private final LongAdder applied = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile State state = State.RUNNING;
+        private Thread driver;
+
+        private Run(double perSecond, int concurrency) {
+            this.perSecond = perSecond;
+            this.concurrency = concurrency;
+            this.inFlight = new Semaphore(concurrency);
+        }
+
+        private void start() {
+            int reset = dao.resetAll();
+            LOGGER.info("Replaying {} dead letters at up to {}/s, {} at a time", reset, perSecond, concurrency);
+            driver = new Thread(this::drive, "deadletter-replay");
+            driver.setDaemon(true);
+            driver.start();
+        }
+
+        private void drive() {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            long nextSendNanos = System.nanoTime();
+            // claim about a second's worth at a time, so claimed dead letters do not wait long for their turn
+            int batchSize = (int) Math.max(1, Math.min(100, Math.ceil(perSecond)));
+            Deque<DeadLetter> claimed = new ArrayDeque<>();
+            try {
+                while (state == State.RUNNING) {
+                    if (claimed.isEmpty()) {
+                        List<DeadLetter> batch = dao.claim(batchSize, maxAttempts, leaseMillis);
+                        if (batch.isEmpty()) {
+                            if (inFlight.availablePermits() == concurrency && dao.countReplayable(maxAttempts) == 0) {
+                                break;
+                            }
+                            // the rest is backing off or still in flight
+                            Thread.sleep(pollMillis);
+                            continue;
+                        }
+                        claimed.addAll(batch);
+                    }
+
+                    long wait = nextSendNanos - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    nextSendNanos = Math.max(nextSendNanos, System.nanoTime() - intervalNanos) + intervalNanos;
+
+                    inFlight.acquire();
+                    dispatched.increment();
+                    submit(claimed.poll());
+                }
+
+                inFlight.acquire(concurrency);
+                inFlight.release(concurrency);
+                if (state == State.RUNNING) {
+                    state = State.COMPLETED;
+                    LOGGER.info("Completed dead letter replay: {} applied, {} failed", applied.sum(), failed.sum());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = State.STOPPED;
+            } catch (Exception e) {
+                LOGGER.error("Dead letter replay failed", e);
+                state = State.FAILED;
+            } finally {
+                // hand back what was claimed but not sent, rather than hiding it until the lease runs out
+                for (DeadLetter letter : claimed) {
+                    try {
+                        dao.defer(letter.getId(), 0);
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not release {}", letter, e);
+                    }
+                }
+            }
+        }
+
+        private void submit(DeadLetter letter) {
+            CompletableFuture<Void> result;
+            try {
+                result = webhookProcessor.process(letter.getEventType(), letter.getPayload(), Priority.BACKGROUND);
+            } catch (Exception e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+
+            result.whenComplete((v, e) -> {
+                try {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (e == null) {
+                        dao.delete(letter.getId());
+                        applied.increment();
+                    } else if (cause instanceof RetryLaterException) {
+                        dao.defer(letter.getId(), ((RetryLaterException) cause).getRetryAfterMillis());
+                    } else {
+                        failed.increment();
+                        long delayMillis = backoffMillis << Math.min(letter.getReplayAttempts(), 16);
+                        LOGGER.warn("Replay of {} failed, next attempt in {}ms", letter, delayMillis, cause);
+                        dao.failed(letter.getId(), describe(cause), delayMillis);
+                    }
+                } catch (Exception dbe) {
+                    LOGGER.error("Error acknowledging {}", letter, dbe);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        private void stop() {
+            if (state == State.RUNNING) {
+                state = State.STOPPED;
+                driver.interrupt();
+            }
+        }
+
+        private ReplayStatus status() {
+            ReplayStatus status = new ReplayStatus();
+            status.setState(state.name().toLowerCase());
+            status.setMaxPerSecond(perSecond);
+            status.setMaxInFlight(concurrency);
+            status.setDispatched(dispatched.sum());
+            status.setApplied(applied.sum());
+            status.setFailed(failed.sum());
+            status.setInFlight(concurrency - inFlight.availablePermits());
+            status.setRemaining(dao.count());
+            return status;
+        }
+    }
+}
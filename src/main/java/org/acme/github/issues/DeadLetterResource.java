@@ -0,0 +1,61 @@
+package org.acme.github.issues;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.acme.github.issues.model.ReplayStatus;
+
+/**
+ * Inspects the dead letters and starts, inspects and stops a {@link DeadLetterReplayer} replay. The replay's pace can
+ * be set per run, e.g. {@code POST /deadletters/replay?rate=200&concurrency=100}.
+ */
+@Path("/deadletters")
+@Produces(MediaType.APPLICATION_JSON)
+public class DeadLetterResource {
+
+    @Inject
+    DeadLetterReplayer replayer;
+
+    @GET
+    public JsonObject count() {
+        return Json.createObjectBuilder()
+                .add("count", replayer.count())
+                .build();
+    }
+
+    @POST
+    @Path("/replay")
+    public Response start(@QueryParam("rate") Double rate, @QueryParam("concurrency") Integer concurrency) {
+        try {
+            return Response.accepted(replayer.start(rate, concurrency)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(replayer.status()).build();
+        }
+    }
+
+    @GET
+    @Path("/replay")
+    public Response status() {
+        return found(replayer.status());
+    }
+
+    @DELETE
+    @Path("/replay")
+    public Response stop() {
+        return found(replayer.stop());
+    }
+
+    private static Response found(ReplayStatus status) {
+        return status == null ? Response.status(Response.Status.NOT_FOUND).build() : Response.ok(status).build();
+    }
+}
@@ -0,0 +1,117 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.acme.github.issues.dao.WebhookDeliveryIdDao;
+import org.acme.github.issues.utils.BloomFilter;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recognises GitHub redeliveries by their {@code X-GitHub-Delivery} id without a database round trip in the common
+ * case. Ids accepted by this node go into two Bloom filter generations that rotate every half
+ * {@code webhook.dedup.window.millis}, so memory stays fixed however much traffic comes in. A new id is a miss on the
+ * filters and is answered straight away; a hit is confirmed against the {@code webhook.dedup.recent.size} most recent
+ * ids, and only false positives and older ids fall back to the {@code webhook_delivery_ids} table. That table,
+ * written when a delivery is queued, stays the source of truth across nodes and restarts.
+ */
+@ApplicationScoped
+public class DeliveryDeduplicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeliveryDeduplicator.class);
+
+    @ConfigProperty(name = "webhook.dedup.window.millis", defaultValue = "86400000")
+    long windowMillis;
+
+    @ConfigProperty(name = "webhook.dedup.expected.ids", defaultValue = "1000000")
+    long expectedIds;
+
+    @ConfigProperty(name = "webhook.dedup.recent.size", defaultValue = "10000")
+    int recentSize;
+
+    @Inject
+    Jdbi jdbi;
+
+    private WebhookDeliveryIdDao dao;
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private Map<String, Boolean> recent;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        dao = jdbi.onDemand(WebhookDeliveryIdDao.class);
+        current = new BloomFilter(expectedIds, 0.01);
+        previous = new BloomFilter(expectedIds, 0.01);
+        recent = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentSize;
+            }
+        };
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "webhook-dedup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(windowMillis / 2, 1);
+        scheduler.scheduleWithFixedDelay(this::rotate, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduler.shutdown();
+    }
+
+    /**
+     * @return whether a delivery with this id was accepted within the window. May miss ids accepted by another node,
+     * which queueing catches instead.
+     */
+    public boolean isDuplicate(String deliveryId) {
+        if (!current.mightContain(deliveryId) && !previous.mightContain(deliveryId)) {
+            return false;
+        }
+        synchronized (recent) {
+            if (recent.containsKey(deliveryId)) {
+                return true;
+            }
+        }
+        return dao.exists(deliveryId);
+    }
+
+    /**
+     * Remembers an id that was just recorded in the table, whether by this delivery or an earlier one.
+     */
+    public void accepted(String deliveryId) {
+        current.add(deliveryId);
+        synchronized (recent) {
+            recent.put(deliveryId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Drops the older generation, so an id is forgotten between half a window and a window after it was accepted.
+     * Until the table is pruned below, a forgotten id is still recognised, at the cost of a query.
+     */
+    void rotate() {
+        BloomFilter expired = previous;
+        expired.clear();
+        previous = current;
+        current = expired;
+        try {
+            int pruned = dao.prune(windowMillis);
+            LOGGER.debug("Pruned {} webhook delivery ids older than {} ms", pruned, windowMillis);
+        } catch (Exception e) {
+            LOGGER.warn("Could not prune webhook delivery ids", e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.StartupEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import javax.ws.rs.WebApplicationException;
+import org.acme.github.issues.client.SDMApiClient;
+import org.acme.github.issues.model.SDMAuth;
+import org.acme.github.issues.utils.GraphQLQuery;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads and validates the {@code .graphql} resources once, at startup, and sends them to SDM. With
+ * {@code sdm.persisted.queries} a query goes out as its SHA-256 id only; the full text follows when SDM does not know
+ * the id yet, and every request to an account that does not support persisted queries carries the text again.
+ */
+@ApplicationScoped
+public class GraphQLQueries {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphQLQueries.class);
+
+    public static final String CONFIG_QUERY = "config-query.graphql";
+    public static final String DATA_QUERY = "get-data-query.graphql";
+    public static final String CREATE_DATA_MUTATION = "create-data-mutation.graphql";
+    public static final String UPDATE_DATA_MUTATION = "update-data-mutation.graphql";
+
+    private static final List<String> RESOURCES =
+            Arrays.asList(CONFIG_QUERY, DATA_QUERY, CREATE_DATA_MUTATION, UPDATE_DATA_MUTATION);
+
+    @ConfigProperty(name = "sdm.persisted.queries", defaultValue = "false")
+    boolean persistedQueries;
+
+    @Inject
+    SDMApiClient sdmApiClient;
+
+    private final Map<String, GraphQLQuery> queries = new HashMap<>();
+    private final Set<String> persistedUnsupported = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        for (String resource : RESOURCES) {
+            try (InputStream is = GraphQLQueries.class.getResourceAsStream(resource)) {
+                if (is == null) {
+                    throw new IllegalStateException("Missing GraphQL resource " + resource);
+                }
+                queries.put(resource, GraphQLQuery.parse(IOUtils.toString(is, StandardCharsets.UTF_8)));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalStateException("Unable to load GraphQL resource " + resource, e);
+            }
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        queries.forEach((resource, query) ->
+                LOGGER.info("Loaded GraphQL operation {} from {} ({})", query.getOperationName(), resource,
+                        query.getSha256()));
+    }
+
+    public GraphQLQuery get(String resource) {
+        GraphQLQuery query = queries.get(resource);
+        if (query == null) {
+            throw new IllegalArgumentException("Unknown GraphQL resource " + resource);
+        }
+        return query;
+    }
+
+    public JsonObject execute(String account, SDMAuth auth, GraphQLQuery query, JsonObject variables) {
+        if (!usePersisted(account)) {
+            return sdmApiClient.executeQuery(account, auth, query.toRequest(variables));
+        }
+
+        JsonObject response;
+        try {
+            response = sdmApiClient.executeQuery(account, auth, query.toPersistedRequest(variables, false));
+        } catch (WebApplicationException e) {
+            return sdmApiClient.executeQuery(account, auth, fallback(account, query, variables, e));
+        }
+        JsonObject retry = retry(account, query, variables, response);
+        return retry == null ? response : sdmApiClient.executeQuery(account, auth, retry);
+    }
+
+    public CompletableFuture<JsonObject> executeAsync(String account, SDMAuth auth, GraphQLQuery query,
+                                                      JsonObject variables) {
+        if (!usePersisted(account)) {
+            return sdmApiClient.executeQueryAsync(account, auth, query.toRequest(variables)).toCompletableFuture();
+        }
+
+        return sdmApiClient.executeQueryAsync(account, auth, query.toPersistedRequest(variables, false))
+                .toCompletableFuture()
+                .handle((response, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        JsonObject body = fallback(account, query, variables, cause);
+                        return sdmApiClient.executeQueryAsync(account, auth, body).toCompletableFuture();
+                    }
+                    JsonObject retry = retry(account, query, variables, response);
+                    return retry == null
+                            ? CompletableFuture.completedFuture(response)
+                            : sdmApiClient.executeQueryAsync(account, auth, retry).toCompletableFuture();
+                })
+                .thenCompose(response -> response);
+    }
+
+    private boolean usePersisted(String account) {
+        return persistedQueries && !persistedUnsupported.contains(account);
+    }
+
+    /**
+     * @return the body to send again when SDM did not accept the id alone, or {@code null} if the response stands
+     */
+    private JsonObject retry(String account, GraphQLQuery query, JsonObject variables, JsonObject response) {
+        JsonArray errors = response.getJsonArray("errors");
+        if (errors == null) {
+            return null;
+        }
+        for (JsonValue error : errors) {
+            String reason = persistedQueryError(error.asJsonObject());
+            if ("PERSISTED_QUERY_NOT_FOUND".equals(reason)) {
+                LOGGER.debug("Registering GraphQL operation {} for account {}", query.getOperationName(), account);
+                return query.toPersistedRequest(variables, true);
+            }
+            if ("PERSISTED_QUERY_NOT_SUPPORTED".equals(reason)) {
+                return unsupported(account, query, variables);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A server unaware of persisted queries answers a body without {@code query} with a 400.
+     */
+    private JsonObject fallback(String account, GraphQLQuery query, JsonObject variables, Throwable e) {
+        if (e instanceof WebApplicationException
+                && ((WebApplicationException) e).getResponse().getStatus() == 400) {
+            return unsupported(account, query, variables);
+        }
+        throw e instanceof RuntimeException ? (RuntimeException) e : new CompletionException(e);
+    }
+
+    private JsonObject unsupported(String account, GraphQLQuery query, JsonObject variables) {
+        if (persistedUnsupported.add(account)) {
+            LOGGER.info("Account {} does not accept persisted queries, sending full query text", account);
+        }
+        return query.toRequest(variables);
+    }
+
+    private static String persistedQueryError(JsonObject error) {
+        JsonValue extensions = error.get("extensions");
+        if (extensions != null && extensions.getValueType() == JsonValue.ValueType.OBJECT) {
+            String code = extensions.asJsonObject().getString("code", null);
+            if (code != null) {
+                return code;
+            }
+        }
+        String message = error.getString("message", "");
+        if ("PersistedQueryNotFound".equals(message)) {
+            return "PERSISTED_QUERY_NOT_FOUND";
+        }
+        if ("PersistedQueryNotSupported".equals(message)) {
+            return "PERSISTED_QUERY_NOT_SUPPORTED";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,216 @@
+package org.acme.github.issues;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+import org.acme.github.issues.client.CompressingWriterInterceptor;
+import org.acme.github.issues.client.SDMApiClient;
+import org.acme.github.issues.utils.DecompressingReaderInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpAsyncClient4Engine;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.plugins.interceptors.AcceptEncodingGZIPFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owns the single pooled, keep-alive HTTP client used for all SDM traffic: the account token endpoint in
+ * {@code AppTokens} and the GraphQL endpoint behind {@link SDMApiClient}.
+ *
+ * <p>By default the GraphQL client and account token fetches run on a non-blocking client, so a request in flight
+ * holds a pooled connection but no thread. Setting {@code sdm.http.async} to false falls back to the blocking client,
+ * with the asynchronous {@link SDMApiClient} methods run on a pool of {@code http.pool.max.total} threads.
+ *
+ * <p>Rate limit headers on GraphQL responses are passed on to the {@link AccountScheduler}.
+ *
+ * <p>GraphQL request bodies of at least {@code sdm.http.request.compression.min.bytes} are sent gzip or deflate
+ * encoded when {@code sdm.http.request.compression} names one. Compressed responses are always asked for.
+ */
+@ApplicationScoped
+public class HttpTransport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpTransport.class);
+
+    @ConfigProperty(name = "org.acme.github.issues.client.SDMApiClient/mp-rest/url")
+    String sdmGraphQLUrl;
+
+    @ConfigProperty(name = "http.pool.max.total", defaultValue = "200")
+    int maxTotal;
+
+    @ConfigProperty(name = "http.pool.max.per.route", defaultValue = "50")
+    int maxPerRoute;
+
+    @ConfigProperty(name = "http.connect.timeout.millis", defaultValue = "5000")
+    int connectTimeoutMillis;
+
+    @ConfigProperty(name = "http.read.timeout.millis", defaultValue = "30000")
+    int readTimeoutMillis;
+
+    @ConfigProperty(name = "http.keep.alive.millis", defaultValue = "60000")
+    long keepAliveMillis;
+
+    @ConfigProperty(name = "sdm.http.async", defaultValue = "true")
+    boolean async;
+
+    @ConfigProperty(name = "http.io.threads", defaultValue = "2")
+    int ioThreads;
+
+    /**
+     * {@code gzip}, {@code deflate} or {@code none}.
+     */
+    @ConfigProperty(name = "sdm.http.request.compression", defaultValue = "none")
+    String requestCompression;
+
+    @ConfigProperty(name = "sdm.http.request.compression.min.bytes", defaultValue = "1024")
+    int requestCompressionMinBytes;
+
+    @Inject
+    AccountScheduler accountScheduler;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private CloseableHttpAsyncClient asyncHttpClient;
+    private ConnPoolControl<HttpRoute> graphQLPool;
+    private ExecutorService requestExecutor;
+    private ResteasyClient restClient;
+
+    @PostConstruct
+    public void init() {
+        connectionManager = new PoolingHttpClientConnectionManager(keepAliveMillis, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        requestExecutor = Executors.newFixedThreadPool(async ? 1 : maxTotal, r -> {
+            Thread thread = new Thread(r, "sdm-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ResteasyClientBuilder builder = ((ResteasyClientBuilder) ResteasyClientBuilder.newBuilder())
+                .executorService(requestExecutor);
+        builder.register(new RateLimitFilter(accountScheduler));
+        if (!"none".equals(requestCompression)) {
+            builder.register(new CompressingWriterInterceptor(requestCompression, requestCompressionMinBytes));
+        }
+
+        if (async) {
+            asyncHttpClient = createAsyncHttpClient(requestConfig);
+            asyncHttpClient.start();
+            // unlike the blocking client, the non-blocking one does not negotiate compressed responses by itself
+            builder.register(AcceptEncodingGZIPFilter.class)
+                    .register(new DecompressingReaderInterceptor(Long.MAX_VALUE));
+            restClient = builder.httpEngine(new ApacheHttpAsyncClient4Engine(asyncHttpClient, false)).build();
+        } else {
+            graphQLPool = connectionManager;
+            restClient = builder.httpEngine(new ApacheHttpClient43Engine(httpClient)).build();
+        }
+    }
+
+    private CloseableHttpAsyncClient createAsyncHttpClient(RequestConfig requestConfig) {
+        PoolingNHttpClientConnectionManager asyncConnectionManager;
+        try {
+            asyncConnectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(
+                    IOReactorConfig.custom()
+                            .setIoThreadCount(ioThreads)
+                            .setConnectTimeout(connectTimeoutMillis)
+                            .setSoTimeout(readTimeoutMillis)
+                            .build()));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Could not start the HTTP I/O reactor", e);
+        }
+        asyncConnectionManager.setMaxTotal(maxTotal);
+        asyncConnectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        graphQLPool = asyncConnectionManager;
+
+        return HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .build();
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            // honour the server's Keep-Alive timeout when it sends one, never hold a connection longer
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                    .getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        restClient.close();
+        requestExecutor.shutdown();
+        try {
+            httpClient.close();
+            if (asyncHttpClient != null) {
+                asyncHttpClient.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error closing HTTP client", e);
+        }
+    }
+
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * @return the non-blocking client, or {@code null} if {@code sdm.http.async} is false.
+     */
+    public CloseableHttpAsyncClient getAsyncHttpClient() {
+        return asyncHttpClient;
+    }
+
+    /**
+     * @return leased, idle, pending and maximum connection counts across every route of the GraphQL client.
+     */
+    public PoolStats getPoolStats() {
+        return graphQLPool.getTotalStats();
+    }
+
+    @Produces
+    @ApplicationScoped
+    public SDMApiClient sdmApiClient() {
+        return restClient.target(sdmGraphQLUrl).proxy(SDMApiClient.class);
+    }
+}
@@ -0,0 +1,120 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Collapses bursts of events for the same issue. An event for a key that has seen none lately is admitted straight away
+ * and opens a window of {@code issue.coalesce.window.millis}; events arriving inside it wait, each replacing the
+ * waiting snapshot if its {@code updated_at} is not older. When the window closes the newest waiting snapshot is
+ * admitted and opens the next window, every other event is reported as superseded. So a lone event is never held back,
+ * and a burst costs at most one write per window. Events older than the last admitted snapshot for their key are
+ * dropped straight away.
+ */
+@ApplicationScoped
+public class IssueCoalescer {
+
+    @ConfigProperty(name = "issue.coalesce.window.millis", defaultValue = "2000")
+    long windowMillis;
+
+    @ConfigProperty(name = "issue.coalesce.history.size", defaultValue = "10000")
+    int historySize;
+
+    private final Map<String, Window> windows = new HashMap<>();
+    private Map<String, Long> lastAdmitted;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        lastAdmitted = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > historySize;
+            }
+        };
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "issue-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduler.shutdown();
+    }
+
+    /**
+     * @param key the issue key.
+     * @param updatedAt the issue's {@code updated_at}, in epoch millis.
+     * @return a future completing with {@code true} if this snapshot should be sent to SDM, or {@code false} if a
+     * newer snapshot of the same issue supersedes it.
+     */
+    public CompletableFuture<Boolean> admit(String key, long updatedAt) {
+        CompletableFuture<Boolean> superseded;
+        CompletableFuture<Boolean> admitted;
+        synchronized (windows) {
+            Long last = lastAdmitted.get(key);
+            if (last != null && updatedAt < last) {
+                return CompletableFuture.completedFuture(false);
+            }
+            if (windowMillis <= 0) {
+                lastAdmitted.put(key, updatedAt);
+                return CompletableFuture.completedFuture(true);
+            }
+
+            Window window = windows.get(key);
+            if (window == null) {
+                open(key);
+                lastAdmitted.put(key, updatedAt);
+                return CompletableFuture.completedFuture(true);
+            }
+            if (window.admitted != null && updatedAt < window.updatedAt) {
+                return CompletableFuture.completedFuture(false);
+            }
+
+            superseded = window.admitted;
+            admitted = new CompletableFuture<>();
+            window.updatedAt = updatedAt;
+            window.admitted = admitted;
+        }
+
+        if (superseded != null) {
+            superseded.complete(false);
+        }
+        return admitted;
+    }
+
+    private void open(String key) {
+        windows.put(key, new Window());
+        scheduler.schedule(() -> close(key), windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void close(String key) {
+        Window closed;
+        synchronized (windows) {
+            closed = windows.remove(key);
+            if (closed == null || closed.admitted == null) {
+                return;
+            }
+            lastAdmitted.put(key, closed.updatedAt);
+            // it goes to SDM now, so later events for the key wait for the next window
+            open(key);
+        }
+        closed.admitted.complete(true);
+    }
+
+    private static class Window {
+        private long updatedAt;
+        private CompletableFuture<Boolean> admitted;
+    }
+}
@@ -0,0 +1,95 @@
+package org.acme.github.issues;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.acme.github.issues.dao.IssueIdDao;
+import org.acme.github.issues.model.IndexedIssue;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Remembers which SDM id each GitHub issue was stored under, so that events for known issues can go straight to the
+ * update mutation, and the hash of what was last written, so that events changing nothing SDM stores can be skipped.
+ * Backed by the {@code github_issue_ids} table and fronted by a bounded LRU cache.
+ */
+@ApplicationScoped
+public class IssueIndex {
+
+    @ConfigProperty(name = "issue.index.cache.size", defaultValue = "10000")
+    int cacheSize;
+
+    @Inject
+    Jdbi jdbi;
+
+    private IssueIdDao dao;
+    private Map<String, IndexedIssue> cache;
+
+    @PostConstruct
+    public void init() {
+        dao = jdbi.onDemand(IssueIdDao.class);
+        cache = new LinkedHashMap<String, IndexedIssue>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IndexedIssue> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public Optional<IndexedIssue> lookup(String account, String key) {
+        String cacheKey = cacheKey(account, key);
+        synchronized (cache) {
+            IndexedIssue issue = cache.get(cacheKey);
+            if (issue != null) {
+                return Optional.of(issue);
+            }
+        }
+
+        Optional<IndexedIssue> issue = dao.find(account, key);
+        issue.ifPresent(value -> {
+            synchronized (cache) {
+                cache.put(cacheKey, value);
+            }
+        });
+        return issue;
+    }
+
+    /**
+     * @param contentHash the {@code JsonHash} of the data just written, or {@code null} if it is not known.
+     */
+    public void put(String account, String key, String id, Long contentHash) {
+        String cacheKey = cacheKey(account, key);
+        IndexedIssue issue = new IndexedIssue(id, contentHash);
+        synchronized (cache) {
+            if (issue.equals(cache.get(cacheKey))) {
+                return;
+            }
+        }
+        dao.upsert(account, key, id, contentHash);
+        synchronized (cache) {
+            cache.put(cacheKey, issue);
+        }
+    }
+
+    /**
+     * @return the accounts with the most indexed issues, largest first
+     */
+    public List<String> largestAccounts(int limit) {
+        return dao.largestAccounts(limit);
+    }
+
+    public void evict(String account, String key) {
+        synchronized (cache) {
+            cache.remove(cacheKey(account, key));
+        }
+        dao.delete(account, key);
+    }
+
+    private static String cacheKey(String account, String key) {
+        return account + '/' + key;
+    }
+}
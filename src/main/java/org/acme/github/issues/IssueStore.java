@@ -0,0 +1,156 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.acme.github.issues.dao.StoredIssueDao;
+import org.acme.github.issues.dao.StoredIssueWriter;
+import org.acme.github.issues.model.StoredIssue;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local system of record of every mapped issue, in {@code sor_data_github_issues}, so replays, reconciliation and
+ * reads don't have to go to SDM. Writes are queued and flushed by one thread in batches of up to
+ * {@code sor.batch.size}, at most {@code sor.batch.linger.millis} after the first write of a batch. When the newest
+ * snapshot of an issue is already stored, an older one is ignored.
+ */
+@ApplicationScoped
+public class IssueStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IssueStore.class);
+
+    @ConfigProperty(name = "sor.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "sor.queue.size", defaultValue = "50000")
+    int queueSize;
+
+    @ConfigProperty(name = "sor.batch.size", defaultValue = "5000")
+    int batchSize;
+
+    @ConfigProperty(name = "sor.batch.linger.millis", defaultValue = "100")
+    long lingerMillis;
+
+    @ConfigProperty(name = "sor.retry.millis", defaultValue = "1000")
+    long retryMillis;
+
+    @Inject
+    Jdbi jdbi;
+
+    private StoredIssueDao dao;
+    private StoredIssueWriter writer;
+    private BlockingQueue<StoredIssue> queue;
+    private volatile boolean running;
+    private Thread flusher;
+
+    @PostConstruct
+    public void init() {
+        dao = jdbi.onDemand(StoredIssueDao.class);
+        writer = new StoredIssueWriter(jdbi);
+        queue = new LinkedBlockingQueue<>(queueSize);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "sor-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a snapshot of the issue for writing. Blocks while {@code sor.queue.size} writes are waiting, so a slow
+     * database pushes back on the pipeline instead of losing snapshots.
+     */
+    public void write(String account, String key, long updatedAt, JsonObject data) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            queue.put(new StoredIssue(account, key, updatedAt, data.toString()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted storing issue {}", key);
+        }
+    }
+
+    public Optional<JsonObject> find(String account, String key) {
+        return dao.find(account, key).map(data -> {
+            try (JsonReader reader = Json.createReader(new StringReader(data))) {
+                return reader.readObject();
+            }
+        });
+    }
+
+    private void flushLoop() {
+        List<StoredIssue> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    StoredIssue first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                    while (batch.size() < batchSize) {
+                        StoredIssue next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+
+                int written = writer.upsert(batch);
+                LOGGER.debug("Stored {} of {} issues", written, batch.size());
+                batch.clear();
+            } catch (InterruptedException e) {
+                // shutting down, flush what is left without waiting for more
+                running = false;
+                queue.drainTo(batch);
+            } catch (Exception e) {
+                LOGGER.error("Error storing {} issues, retrying in {}ms", batch.size(), retryMillis, e);
+                if (!running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException ie) {
+                    running = false;
+                }
+            }
+        }
+    }
+}
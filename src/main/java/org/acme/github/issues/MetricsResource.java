@@ -0,0 +1,61 @@
+package org.acme.github.issues;
+
+import com.cloudbees.sdm.api.AppTokens;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Prometheus scrape endpoint for the {@link PipelineMetrics}, the {@link AccountLimiter}, the {@link AccountScheduler},
+ * the account token cache and the SDM connection pool.
+ */
+@Path("/metrics")
+public class MetricsResource {
+
+    @Inject
+    PipelineMetrics pipelineMetrics;
+
+    @Inject
+    AccountLimiter accountLimiter;
+
+    @Inject
+    AccountScheduler accountScheduler;
+
+    @Inject
+    ApiManager apiManager;
+
+    @Inject
+    HttpTransport httpTransport;
+
+    @GET
+    @Produces("text/plain; version=0.0.4")
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16384);
+        pipelineMetrics.write(out);
+        accountLimiter.write(out);
+        accountScheduler.write(out);
+
+        AppTokens tokens = apiManager.appTokens;
+        PipelineMetrics.writeCounter(out, "sdm_token_cache_hits_total",
+                "Account token requests served from the cache.", tokens.getCacheHits());
+        PipelineMetrics.writeCounter(out, "sdm_token_cache_misses_total",
+                "Account token requests that had to fetch a token.", tokens.getCacheMisses());
+        PipelineMetrics.writeCounter(out, "sdm_token_refreshes_total",
+                "Account tokens renewed in the background before expiring.", tokens.getRefreshes());
+        PipelineMetrics.writeCounter(out, "sdm_token_refresh_failures_total",
+                "Background token renewals that failed.", tokens.getRefreshFailures());
+
+        PoolStats pool = httpTransport.getPoolStats();
+        PipelineMetrics.writeGauge(out, "sdm_http_pool_leased_connections",
+                "SDM connections currently in use.", pool.getLeased());
+        PipelineMetrics.writeGauge(out, "sdm_http_pool_available_connections",
+                "Idle SDM connections kept alive for reuse.", pool.getAvailable());
+        PipelineMetrics.writeGauge(out, "sdm_http_pool_pending_requests",
+                "SDM requests waiting for a connection.", pool.getPending());
+        PipelineMetrics.writeGauge(out, "sdm_http_pool_max_connections",
+                "Most SDM connections the pool opens.", pool.getMax());
+        return out.toString();
+    }
+}
@@ -0,0 +1,194 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import org.acme.github.issues.AccountScheduler.Priority;
+import org.acme.github.issues.model.MutationResult;
+import org.acme.github.issues.model.SDMAuth;
+import org.acme.github.issues.utils.GraphQLBatch;
+import org.acme.github.issues.utils.GraphQLQuery;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces add/update mutations headed for the same account into a single GraphQL request. A batch is sent once it
+ * holds {@code sdm.batch.size} mutations or {@code sdm.batch.linger.millis} after its first mutation arrived,
+ * whichever comes first. Batches go out through the {@link AccountScheduler}, as live work if any of their mutations
+ * is.
+ */
+@ApplicationScoped
+public class MutationBatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MutationBatcher.class);
+
+    @ConfigProperty(name = "sdm.batch.size", defaultValue = "25")
+    int maxBatchSize;
+
+    @ConfigProperty(name = "sdm.batch.linger.millis", defaultValue = "50")
+    long lingerMillis;
+
+    @ConfigProperty(name = "sdm.batch.threads", defaultValue = "4")
+    int threads;
+
+    @Inject
+    ApiManager apiManager;
+
+    @Inject
+    GraphQLQueries graphQLQueries;
+
+    @Inject
+    PipelineMetrics metrics;
+
+    @Inject
+    AccountScheduler accountScheduler;
+
+    @Inject
+    AccountLimiter accountLimiter;
+
+    private final Map<String, Batch> pending = new HashMap<>();
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "sdm-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        executor = scheduler;
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        List<Batch> remaining;
+        synchronized (pending) {
+            remaining = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        remaining.forEach(this::send);
+        executor.shutdown();
+    }
+
+    public CompletableFuture<MutationResult> add(String account, String dataType, String key, JsonObject data,
+                                                 Priority priority) {
+        return submit(account, priority, batch -> batch.add(dataType, key, data));
+    }
+
+    public CompletableFuture<MutationResult> update(String account, String dataType, String id, JsonObject data,
+                                                    Priority priority) {
+        return submit(account, priority, batch -> batch.update(dataType, id, data));
+    }
+
+    private CompletableFuture<MutationResult> submit(String account, Priority priority,
+                                                     Consumer<GraphQLBatch> mutation) {
+        CompletableFuture<MutationResult> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (pending) {
+            Batch batch = pending.get(account);
+            if (batch == null) {
+                Batch created = new Batch(account);
+                batch = created;
+                pending.put(account, batch);
+                executor.schedule(() -> flush(created), lingerMillis, TimeUnit.MILLISECONDS);
+            }
+            mutation.accept(batch.graphQLBatch);
+            batch.results.add(result);
+            if (priority == Priority.LIVE) {
+                batch.priority = Priority.LIVE;
+            }
+            if (batch.results.size() >= maxBatchSize) {
+                pending.remove(account);
+                full = batch;
+            }
+        }
+
+        if (full != null) {
+            Batch batch = full;
+            executor.execute(() -> send(batch));
+        }
+        return result;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (pending) {
+            if (!pending.remove(batch.account, batch)) {
+                // already sent because it filled up
+                return;
+            }
+        }
+        send(batch);
+    }
+
+    /**
+     * Sends the batch without waiting for the response; the mutations' futures complete from the HTTP client.
+     */
+    private void send(Batch batch) {
+        GraphQLQuery query = batch.graphQLBatch.toQuery();
+        JsonObject variables = batch.graphQLBatch.getVariables();
+        accountScheduler.schedule(batch.account, batch.priority, () -> accountLimiter.call(batch.account,
+                () -> apiManager.createTokenAsync(batch.account).thenCompose(token ->
+                        graphQLQueries.executeAsync(batch.account, new SDMAuth(token), query, variables))))
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        failed(batch, e instanceof CompletionException ? e.getCause() : e);
+                        return;
+                    }
+                    try {
+                        complete(batch, response);
+                    } catch (Exception re) {
+                        failed(batch, re);
+                    }
+                });
+    }
+
+    private void complete(Batch batch, JsonObject response) {
+        JsonArray errors = response.getJsonArray("errors");
+        if (errors != null) {
+            metrics.graphQLErrors(batch.account, errors.size());
+        }
+        List<MutationResult> results = batch.graphQLBatch.results(response);
+        for (int i = 0; i < results.size(); i++) {
+            batch.results.get(i).complete(results.get(i));
+        }
+        LOGGER.debug("Sent batch of {} mutations for account {}", results.size(), batch.account);
+    }
+
+    private void failed(Batch batch, Throwable e) {
+        if (e instanceof RetryLaterException) {
+            LOGGER.debug("Deferring batch of {} mutations for account {}: {}", batch.results.size(), batch.account,
+                    e.getMessage());
+        } else {
+            LOGGER.error("Error executing batch of {} mutations for account {}", batch.results.size(),
+                    batch.account, e);
+        }
+        batch.results.forEach(r -> r.completeExceptionally(e));
+    }
+
+    private static class Batch {
+        private final String account;
+        private final GraphQLBatch graphQLBatch = new GraphQLBatch();
+        private final List<CompletableFuture<MutationResult>> results = new ArrayList<>();
+        private Priority priority = Priority.BACKGROUND;
+
+        private Batch(String account) {
+            this.account = account;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.acme.github.issues;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.enterprise.context.ApplicationScoped;
+import org.acme.github.issues.utils.LatencyHistogram;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Latency histograms for each stage of the webhook pipeline, by account and outcome, plus counters for GraphQL errors,
+ * skipped no-op updates, redeliveries, unhandled event types and config reloads. Once an account has been seen,
+ * recording allocates nothing. Rendered in the Prometheus text format by {@link MetricsResource}. Also tracks how
+ * long after process start the first delivery was applied within {@code metrics.fast.delivery.millis}, i.e. how long
+ * a cold start hurts.
+ */
+@ApplicationScoped
+public class PipelineMetrics {
+    static final String UNKNOWN_ACCOUNT = "unknown";
+
+    public enum Stage {
+        /** A whole delivery, from the queue handing it over until it was applied or given up on. */
+        DELIVERY,
+        TOKEN,
+        CREATE,
+        LOOKUP,
+        UPDATE
+    }
+
+    public enum Outcome {
+        OK,
+        CREATED,
+        UPDATED,
+        FAILED,
+        DROPPED,
+        /** Skipped because it would not change anything stored in SDM. */
+        UNCHANGED,
+        /** Put back on the queue because the account was throttled. */
+        DEFERRED
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final long PROCESS_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    @ConfigProperty(name = "metrics.fast.delivery.millis", defaultValue = "500")
+    long fastDeliveryMillis;
+
+    private final Map<String, AccountMetrics> accounts = new ConcurrentHashMap<>();
+    private final LongAdder configReloads = new LongAdder();
+    private final LongAdder configReloadFailures = new LongAdder();
+    private final LongAdder duplicateDeliveries = new LongAdder();
+    private final LongAdder ignoredDeliveries = new LongAdder();
+    private final AtomicLong firstFastDeliveryMillis = new AtomicLong(-1);
+    private volatile long warmupNanos = -1;
+
+    /**
+     * Records the time since {@code startNanos}, a {@link System#nanoTime()} reading, against the given stage.
+     */
+    public void record(String account, Stage stage, Outcome outcome, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        forAccount(account).histogram(stage.ordinal() * OUTCOMES.length + outcome.ordinal()).record(elapsed);
+        if (stage == Stage.DELIVERY && firstFastDeliveryMillis.get() < 0 && isApplied(outcome)
+                && elapsed <= TimeUnit.MILLISECONDS.toNanos(fastDeliveryMillis)) {
+            firstFastDeliveryMillis.compareAndSet(-1, System.currentTimeMillis() - PROCESS_START_MILLIS);
+        }
+    }
+
+    private static boolean isApplied(Outcome outcome) {
+        return outcome == Outcome.CREATED || outcome == Outcome.UPDATED || outcome == Outcome.UNCHANGED;
+    }
+
+    public void warmupCompleted(long nanos) {
+        warmupNanos = nanos;
+    }
+
+    public void mutationSkipped(String account) {
+        forAccount(account).skippedMutations.increment();
+    }
+
+    public void graphQLErrors(String account, int count) {
+        if (count > 0) {
+            forAccount(account).graphQLErrors.add(count);
+        }
+    }
+
+    public void duplicateDelivery() {
+        duplicateDeliveries.increment();
+    }
+
+    public void ignoredDelivery() {
+        ignoredDeliveries.increment();
+    }
+
+    public void configReloaded(boolean success) {
+        (success ? configReloads : configReloadFailures).increment();
+    }
+
+    private AccountMetrics forAccount(String account) {
+        String name = account == null ? UNKNOWN_ACCOUNT : account;
+        AccountMetrics metrics = accounts.get(name);
+        return metrics != null ? metrics : accounts.computeIfAbsent(name, AccountMetrics::new);
+    }
+
+    public void write(StringBuilder out) {
+        out.append("# HELP webhook_stage_seconds Time spent in each stage of the webhook pipeline.\n");
+        out.append("# TYPE webhook_stage_seconds histogram\n");
+        for (AccountMetrics metrics : accounts.values()) {
+            for (int i = 0; i < metrics.histograms.length(); i++) {
+                LatencyHistogram histogram = metrics.histograms.get(i);
+                if (histogram != null) {
+                    writeHistogram(out, metrics.account, STAGES[i / OUTCOMES.length], OUTCOMES[i % OUTCOMES.length],
+                            histogram);
+                }
+            }
+        }
+
+        out.append("# HELP sdm_graphql_errors_total Entries in the errors array of SDM GraphQL responses.\n");
+        out.append("# TYPE sdm_graphql_errors_total counter\n");
+        for (AccountMetrics metrics : accounts.values()) {
+            out.append("sdm_graphql_errors_total{account=\"");
+            appendLabelValue(out, metrics.account);
+            out.append("\"} ").append(metrics.graphQLErrors.sum()).append('\n');
+        }
+
+        out.append("# HELP sdm_mutations_skipped_total Updates not sent because the mapped issue was unchanged.\n");
+        out.append("# TYPE sdm_mutations_skipped_total counter\n");
+        for (AccountMetrics metrics : accounts.values()) {
+            out.append("sdm_mutations_skipped_total{account=\"");
+            appendLabelValue(out, metrics.account);
+            out.append("\"} ").append(metrics.skippedMutations.sum()).append('\n');
+        }
+
+        out.append("# HELP config_reloads_total Installation config reloads from SDM.\n");
+        out.append("# TYPE config_reloads_total counter\n");
+        out.append("config_reloads_total{outcome=\"ok\"} ").append(configReloads.sum()).append('\n');
+        out.append("config_reloads_total{outcome=\"failed\"} ").append(configReloadFailures.sum()).append('\n');
+
+        writeCounter(out, "webhook_duplicate_deliveries_total",
+                "Deliveries acknowledged without queueing because GitHub had delivered them before.",
+                duplicateDeliveries.sum());
+        writeCounter(out, "webhook_ignored_deliveries_total",
+                "Deliveries acknowledged without queueing because no mapper handles their event type.",
+                ignoredDeliveries.sum());
+
+        if (warmupNanos >= 0) {
+            writeGauge(out, "startup_warmup_seconds", "Time spent warming up before reporting ready.",
+                    warmupNanos / 1e9);
+        }
+        long firstFast = firstFastDeliveryMillis.get();
+        if (firstFast >= 0) {
+            writeGauge(out, "startup_first_fast_delivery_seconds",
+                    "Time from process start until a delivery was first applied within the fast threshold.",
+                    firstFast / 1e3);
+        }
+    }
+
+    static void writeCounter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    static void writeGauge(StringBuilder out, String name, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void writeHistogram(StringBuilder out, String account, Stage stage, Outcome outcome,
+                                       LatencyHistogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i <= LatencyHistogram.BOUNDS_SECONDS.length; i++) {
+            cumulative += histogram.getBucket(i);
+            out.append("webhook_stage_seconds_bucket");
+            appendLabels(out, account, stage, outcome);
+            out.append(",le=\"");
+            if (i < LatencyHistogram.BOUNDS_SECONDS.length) {
+                out.append(LatencyHistogram.BOUNDS_SECONDS[i]);
+            } else {
+                out.append("+Inf");
+            }
+            out.append("\"} ").append(cumulative).append('\n');
+        }
+        out.append("webhook_stage_seconds_sum");
+        appendLabels(out, account, stage, outcome);
+        out.append("} ").append(histogram.getSumNanos() / 1e9).append('\n');
+        out.append("webhook_stage_seconds_count");
+        appendLabels(out, account, stage, outcome);
+        out.append("} ").append(cumulative).append('\n');
+    }
+
+    private static void appendLabels(StringBuilder out, String account, Stage stage, Outcome outcome) {
+        out.append("{account=\"");
+        appendLabelValue(out, account);
+        out.append("\",stage=\"").append(stage.name().toLowerCase());
+        out.append("\",outcome=\"").append(outcome.name().toLowerCase()).append('"');
+    }
+
+    static void appendLabelValue(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static class AccountMetrics {
+        private final String account;
+        private final AtomicReferenceArray<LatencyHistogram> histograms =
+                new AtomicReferenceArray<>(STAGES.length * OUTCOMES.length);
+        private final LongAdder graphQLErrors = new LongAdder();
+        private final LongAdder skippedMutations = new LongAdder();
+
+        private AccountMetrics(String account) {
+            this.account = account;
+        }
+
+        /**
+         * Histograms are created on first use, as most stage/outcome combinations never occur for a given account.
+         */
+        private LatencyHistogram histogram(int index) {
+            LatencyHistogram histogram = histograms.get(index);
+            if (histogram == null) {
+                histograms.compareAndSet(index, null, new LatencyHistogram());
+                histogram = histograms.get(index);
+            }
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.acme.github.issues;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.acme.github.issues.dao.WebhookDeliveryDao;
+import org.acme.github.issues.dao.WebhookPartitionDao;
+import org.acme.github.issues.model.WebhookDelivery;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads the {@link WebhookQueue} over the nodes sharing its database. Deliveries are hashed by issue key into
+ * {@code webhook.queue.partitions} partitions and each node only claims deliveries of the partitions it holds a
+ * lease on, so two nodes never work on the same issue at once. Every node heartbeats and aims to hold an even share
+ * of the partitions: a node that holds too many stops claiming from the extras and hands them over once their
+ * in-flight deliveries are done, and partitions and deliveries of a node that stops renewing its leases for
+ * {@code webhook.queue.lease.millis} are picked up by the others.
+ */
+@ApplicationScoped
+public class QueuePartitions {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueuePartitions.class);
+
+    @ConfigProperty(name = "webhook.queue.partitions", defaultValue = "64")
+    int partitions;
+
+    @ConfigProperty(name = "webhook.queue.lease.millis", defaultValue = "30000")
+    long leaseMillis;
+
+    /**
+     * Defaults to the host name, so a restarted node can release the deliveries it held right away instead of waiting
+     * for their leases to expire. Must be unique among the nodes.
+     */
+    @ConfigProperty(name = "webhook.node.id")
+    Optional<String> configuredNodeId;
+
+    @Inject
+    Jdbi jdbi;
+
+    private String nodeId;
+    private WebhookDeliveryDao deliveryDao;
+    private WebhookPartitionDao partitionDao;
+    private final Map<Integer, Lease> owned = new ConcurrentHashMap<>();
+    // claims take the read lock, handing partitions over takes the write lock
+    private final ReadWriteLock handover = new ReentrantReadWriteLock();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId.orElseGet(QueuePartitions::defaultNodeId);
+        deliveryDao = jdbi.onDemand(WebhookDeliveryDao.class);
+        partitionDao = jdbi.onDemand(WebhookPartitionDao.class);
+    }
+
+    private static String defaultNodeId() {
+        String hostname = System.getenv("HOSTNAME");
+        return hostname != null && !hostname.isEmpty() ? hostname : UUID.randomUUID().toString();
+    }
+
+    /**
+     * Registers the node, recovers what its previous process left claimed and takes a first share of partitions.
+     */
+    public void join() {
+        partitionDao.create(partitions);
+        int recovered = deliveryDao.releaseClaims(nodeId);
+        if (recovered > 0) {
+            LOGGER.info("Recovered {} webhook deliveries left in flight by a previous run", recovered);
+        }
+        rebalance();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "webhook-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(leaseMillis / 3, 1);
+        scheduler.scheduleWithFixedDelay(this::rebalance, period, period, TimeUnit.MILLISECONDS);
+        LOGGER.info("Node {} joined holding {} of {} webhook queue partitions", nodeId, owned.size(), partitions);
+    }
+
+    /**
+     * Hands every partition back. Deliveries still claimed are left to {@link #join()} or lease expiry.
+     */
+    public void leave() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        try {
+            partitionDao.releaseAll(nodeId);
+            partitionDao.leave(nodeId);
+        } catch (Exception e) {
+            LOGGER.warn("Could not release webhook queue partitions, they will expire", e);
+        }
+        owned.clear();
+    }
+
+    public int partitionOf(String key) {
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
+    public int anyPartition() {
+        return ThreadLocalRandom.current().nextInt(partitions);
+    }
+
+    /**
+     * Claims up to {@code limit} deliveries from the partitions this node holds and is not handing over. Each must be
+     * passed to {@link #finished(WebhookDelivery)} once it has been acknowledged.
+     */
+    public List<WebhookDelivery> claim(int limit) {
+        handover.readLock().lock();
+        try {
+            List<Integer> claimable = new ArrayList<>(owned.size());
+            owned.forEach((partition, lease) -> {
+                if (!lease.draining) {
+                    claimable.add(partition);
+                }
+            });
+            if (claimable.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<WebhookDelivery> deliveries = deliveryDao.claim(nodeId, claimable, limit, leaseMillis);
+            for (WebhookDelivery delivery : deliveries) {
+                Lease lease = owned.get(delivery.getPartitionId());
+                if (lease != null) {
+                    lease.inFlight.incrementAndGet();
+                }
+            }
+            return deliveries;
+        } finally {
+            handover.readLock().unlock();
+        }
+    }
+
+    public void finished(WebhookDelivery delivery) {
+        Lease lease = owned.get(delivery.getPartitionId());
+        if (lease != null) {
+            lease.inFlight.decrementAndGet();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getOwnedCount() {
+        return owned.size();
+    }
+
+    void rebalance() {
+        try {
+            partitionDao.heartbeat(nodeId);
+            partitionDao.expireNodes(leaseMillis);
+            deliveryDao.renewClaims(nodeId, leaseMillis);
+            int expired = deliveryDao.releaseExpiredClaims();
+            if (expired > 0) {
+                LOGGER.warn("Returned {} webhook deliveries whose claim expired to the queue", expired);
+            }
+            int nodes = Math.max(partitionDao.countNodes(), 1);
+            int share = (partitions + nodes - 1) / nodes;
+
+            handover.writeLock().lock();
+            try {
+                renew();
+                shed(share);
+                acquire(share);
+            } finally {
+                handover.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error renewing webhook queue partitions", e);
+        }
+    }
+
+    private void renew() {
+        Set<Integer> held = new HashSet<>(partitionDao.renew(nodeId, leaseMillis));
+        owned.keySet().removeIf(partition -> {
+            if (!held.contains(partition)) {
+                LOGGER.warn("Lost the lease on webhook queue partition {}", partition);
+                return true;
+            }
+            return false;
+        });
+        held.forEach(partition -> owned.computeIfAbsent(partition, p -> new Lease()));
+    }
+
+    /**
+     * Stops claiming from the partitions above our share, highest first, and hands over those that are drained.
+     */
+    private void shed(int share) {
+        List<Integer> active = new ArrayList<>();
+        owned.forEach((partition, lease) -> {
+            if (!lease.draining) {
+                active.add(partition);
+            }
+        });
+        Collections.sort(active);
+        for (int i = share; i < active.size(); i++) {
+            owned.get(active.get(i)).draining = true;
+        }
+
+        owned.entrySet().removeIf(entry -> {
+            if (entry.getValue().draining && entry.getValue().inFlight.get() == 0) {
+                partitionDao.release(entry.getKey(), nodeId);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void acquire(int share) {
+        if (owned.size() >= share) {
+            return;
+        }
+        List<Integer> acquired = partitionDao.acquire(nodeId, share - owned.size(), leaseMillis);
+        acquired.forEach(partition -> owned.put(partition, new Lease()));
+        if (!acquired.isEmpty()) {
+            LOGGER.info("Took over webhook queue partitions {}", acquired);
+        }
+    }
+
+    private static class Lease {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean draining;
+    }
+}
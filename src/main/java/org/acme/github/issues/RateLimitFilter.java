@@ -0,0 +1,62 @@
+package org.acme.github.issues;
+
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands the {@code X-RateLimit-Remaining} and {@code X-RateLimit-Reset} headers of SDM GraphQL responses to the
+ * {@link AccountScheduler}, for the account in the request path. The reset may be given in epoch seconds or in seconds
+ * from now.
+ */
+public class RateLimitFilter implements ClientResponseFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    static final String REMAINING = "X-RateLimit-Remaining";
+    static final String RESET = "X-RateLimit-Reset";
+
+    // anything smaller cannot be a recent epoch second
+    private static final long MIN_EPOCH_SECONDS = 1_000_000_000L;
+
+    private final AccountScheduler accountScheduler;
+
+    public RateLimitFilter(AccountScheduler accountScheduler) {
+        this.accountScheduler = accountScheduler;
+    }
+
+    @Override
+    public void filter(ClientRequestContext request, ClientResponseContext response) {
+        String remaining = response.getHeaderString(REMAINING);
+        String reset = response.getHeaderString(RESET);
+        String account = account(request.getUri().getPath());
+        if (remaining == null || reset == null || account == null) {
+            return;
+        }
+
+        try {
+            long resetSeconds = Long.parseLong(reset.trim());
+            long windowMillis = resetSeconds < MIN_EPOCH_SECONDS
+                    ? TimeUnit.SECONDS.toMillis(resetSeconds)
+                    : TimeUnit.SECONDS.toMillis(resetSeconds) - System.currentTimeMillis();
+            accountScheduler.observe(account, Long.parseLong(remaining.trim()), windowMillis);
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Ignoring rate limit headers {}={}, {}={}", REMAINING, remaining, RESET, reset);
+        }
+    }
+
+    /**
+     * @return the account of a {@code /a/{accountName}/graphql} path, or {@code null} for any other path.
+     */
+    static String account(String path) {
+        String[] segments = path.split("/");
+        for (int i = 0; i + 2 < segments.length; i++) {
+            if ("a".equals(segments[i]) && "graphql".equals(segments[i + 2]) && !segments[i + 1].isEmpty()) {
+                return segments[i + 1];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package org.acme.github.issues;
+
+import javax.ws.rs.ConstrainedTo;
+import javax.ws.rs.RuntimeType;
+import javax.ws.rs.ext.Provider;
+import org.acme.github.issues.utils.DecompressingReaderInterceptor;
+
+/**
+ * Accepts gzip or deflate encoded request bodies, e.g. webhooks from a proxy that compresses what it forwards.
+ * Bodies are capped at 25 MB once inflated, GitHub's own limit for a webhook payload.
+ */
+@Provider
+@ConstrainedTo(RuntimeType.SERVER)
+public class RequestDecompression extends DecompressingReaderInterceptor {
+    private static final long MAX_BYTES = 25L * 1024 * 1024;
+
+    public RequestDecompression() {
+        super(MAX_BYTES);
+    }
+}
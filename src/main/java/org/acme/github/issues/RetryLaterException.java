@@ -0,0 +1,20 @@
+package org.acme.github.issues;
+
+/**
+ * Thrown when a delivery cannot be worked on right now for reasons unrelated to its content. The delivery is put back
+ * on the queue after {@link #getRetryAfterMillis()} without counting as a failed attempt.
+ */
+public class RetryLaterException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    public RetryLaterException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,139 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.StartupEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Does the work the first deliveries after a deploy would otherwise pay for, and keeps the readiness check DOWN until
+ * it is done: parsing the app key and signing an app token, restoring the last saved installation config (or loading
+ * it from SDM if there is none) and fetching tokens for up to {@code startup.warmup.accounts} accounts, those with the
+ * most issues first. Token fetches still outstanding after {@code startup.warmup.timeout.millis} are left to finish in
+ * the background. The {@link WebhookQueue} waits for it too, see {@link #whenDone()}.
+ */
+@Readiness
+@ApplicationScoped
+public class Warmup implements HealthCheck {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Warmup.class);
+
+    @ConfigProperty(name = "startup.warmup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "startup.warmup.accounts", defaultValue = "20")
+    int accounts;
+
+    @ConfigProperty(name = "startup.warmup.timeout.millis", defaultValue = "30000")
+    long timeoutMillis;
+
+    @Inject
+    ApiManager apiManager;
+
+    @Inject
+    ConfigManager configManager;
+
+    @Inject
+    IssueIndex issueIndex;
+
+    @Inject
+    PipelineMetrics metrics;
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            done.complete(null);
+            return;
+        }
+        Thread thread = new Thread(this::run, "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("warmup").state(done.isDone()).build();
+    }
+
+    /**
+     * @return completed once warmup has finished or given up, never exceptionally.
+     */
+    public CompletableFuture<Void> whenDone() {
+        return done;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        try {
+            try {
+                apiManager.warmUp();
+            } catch (Exception e) {
+                LOGGER.warn("Could not sign an app token", e);
+            }
+
+            if (configManager.restoreSnapshot()) {
+                // serve the saved config right away, but don't wait for the next scheduled reload to catch up
+                configManager.requestRefresh();
+            }
+            Set<String> installed = configManager.getInstallations().keySet();
+            int warmed = prewarmTokens(installed);
+
+            long elapsed = System.nanoTime() - start;
+            metrics.warmupCompleted(elapsed);
+            LOGGER.info("Warmed up in {}ms: {} installations, tokens for {} accounts",
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), installed.size(), warmed);
+        } catch (RuntimeException e) {
+            LOGGER.error("Warmup failed", e);
+        } finally {
+            done.complete(null);
+        }
+    }
+
+    private int prewarmTokens(Set<String> installed) {
+        List<String> selected = new ArrayList<>();
+        try {
+            for (String account : issueIndex.largestAccounts(accounts)) {
+                if (installed.contains(account)) {
+                    selected.add(account);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not rank accounts by size", e);
+        }
+        for (String account : installed) {
+            if (selected.size() >= accounts) {
+                break;
+            }
+            if (!selected.contains(account)) {
+                selected.add(account);
+            }
+        }
+
+        CompletableFuture<?>[] fetches = selected.stream()
+                .map(account -> apiManager.createTokenAsync(account).handle((token, e) -> null))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(fetches).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Token warmup still running after {}ms, reporting ready anyway", timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // failures were already logged by the ApiManager
+        }
+        return selected.size();
+    }
+}
@@ -0,0 +1,73 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.StartupEvent;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import org.acme.github.issues.utils.WebhookEventMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Every {@link WebhookEventMapper} bean, by the {@code X-GitHub-Event} types it handles. Lets the endpoint turn away
+ * event types nothing handles, such as {@code push} or {@code check_run}, from the header alone.
+ */
+@ApplicationScoped
+public class WebhookMappers {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebhookMappers.class);
+
+    /**
+     * Handled by reloading the {@link ConfigManager} rather than by a mapper.
+     */
+    static final Set<String> INSTALLATION_EVENTS =
+            new HashSet<>(Arrays.asList("installation", "installation_repositories"));
+
+    @Inject
+    Instance<WebhookEventMapper<?>> mappers;
+
+    private final Map<String, WebhookEventMapper<?>> byEventType = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        register(mappers);
+    }
+
+    void register(Iterable<? extends WebhookEventMapper<?>> mappers) {
+        for (WebhookEventMapper<?> mapper : mappers) {
+            for (String eventType : mapper.getEventTypes()) {
+                WebhookEventMapper<?> existing = byEventType.putIfAbsent(eventType, mapper);
+                if (existing != null) {
+                    throw new IllegalStateException("Event type " + eventType + " is handled by both "
+                            + existing.getClass().getName() + " and " + mapper.getClass().getName());
+                }
+            }
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        LOGGER.info("Handling webhook events {} and {}", byEventType.keySet(), INSTALLATION_EVENTS);
+    }
+
+    public boolean isInstallationEvent(String eventType) {
+        return INSTALLATION_EVENTS.contains(eventType);
+    }
+
+    /**
+     * @return whether deliveries of this type are worth queueing at all.
+     */
+    public boolean accepts(String eventType) {
+        return isInstallationEvent(eventType) || byEventType.containsKey(eventType);
+    }
+
+    public Optional<WebhookEventMapper<?>> get(String eventType) {
+        return Optional.ofNullable(byEventType.get(eventType));
+    }
+}
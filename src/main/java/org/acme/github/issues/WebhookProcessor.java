@@ -0,0 +1,377 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import java.io.StringReader;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import org.acme.github.issues.AccountScheduler.Priority;
+import org.acme.github.issues.PipelineMetrics.Outcome;
+import org.acme.github.issues.PipelineMetrics.Stage;
+import org.acme.github.issues.model.IndexedIssue;
+import org.acme.github.issues.model.IssueEvent;
+import org.acme.github.issues.model.SDMAuth;
+import org.acme.github.issues.utils.GitHubIssueMapper;
+import org.acme.github.issues.utils.GraphQLQuery;
+import org.acme.github.issues.utils.JsonHash;
+import org.acme.github.issues.utils.StripedExecutor;
+import org.acme.github.issues.utils.WebhookEventMapper;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes GitHub webhook deliveries into SDM. Invoked by the {@link WebhookQueue} workers, off the request thread.
+ * Each delivery is parsed and mapped by the {@link WebhookEventMapper} registered for its event type.
+ * Mapping and the {@link IssueIndex} run on a dedicated pool of {@code webhook.processor.threads}, or on virtual
+ * threads with {@code webhook.processor.virtual.threads} on a JVM that has them; SDM calls never block that pool.
+ * Events for one issue are applied one after the other on one of {@code webhook.processor.lanes} serial lanes, so a
+ * create or an older snapshot never races a newer one, while events for different issues proceed in parallel.
+ * SDM calls go through the {@link AccountScheduler}, webhook deliveries ahead of backfilled and replayed issues.
+ */
+@ApplicationScoped
+public class WebhookProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebhookProcessor.class);
+
+    @Inject
+    ApiManager apiManager;
+
+    @Inject
+    GraphQLQueries graphQLQueries;
+
+    @Inject
+    ConfigManager configManager;
+
+    @Inject
+    MutationBatcher mutationBatcher;
+
+    @Inject
+    IssueIndex issueIndex;
+
+    @Inject
+    IssueCoalescer issueCoalescer;
+
+    @Inject
+    PipelineMetrics metrics;
+
+    @Inject
+    AccountLimiter accountLimiter;
+
+    @Inject
+    AccountScheduler accountScheduler;
+
+    @Inject
+    IssueStore issueStore;
+
+    @Inject
+    WebhookMappers webhookMappers;
+
+    @Inject
+    GitHubIssueMapper issueMapper;
+
+    @ConfigProperty(name = "webhook.processor.threads", defaultValue = "16")
+    int threads;
+
+    @ConfigProperty(name = "webhook.processor.virtual.threads", defaultValue = "false")
+    boolean virtualThreads;
+
+    @ConfigProperty(name = "webhook.processor.lanes", defaultValue = "256")
+    int lanes;
+
+    @ConfigProperty(name = "webhook.processor.lane.capacity", defaultValue = "8")
+    int laneCapacity;
+
+    @ConfigProperty(name = "webhook.processor.lane.retry.millis", defaultValue = "1000")
+    long laneRetryMillis;
+
+    private ExecutorService executor;
+    private StripedExecutor issueLanes;
+
+    @PostConstruct
+    public void init() {
+        if (virtualThreads) {
+            executor = newVirtualThreadExecutor();
+        }
+        if (executor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "webhook-processor-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        issueLanes = new StripedExecutor(lanes, laneCapacity, executor);
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Virtual threads are not available on this JVM, using {} processor threads", threads);
+            return null;
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        executor.shutdown();
+    }
+
+    /**
+     * @return a future completing once the delivery has been applied to SDM, or has been found to need no work, and
+     * failing if SDM did not take it. No thread waits on SDM in the meantime: the stages are chained on the futures of
+     * the {@link MutationBatcher} and the {@link GraphQLQueries}.
+     */
+    public CompletableFuture<Void> process(String eventType, String rawPayload) {
+        return process(eventType, rawPayload, Priority.LIVE);
+    }
+
+    /**
+     * Like {@link #process(String, String)}, with SDM calls scheduled at the given priority, e.g. for a dead letter
+     * replayed in the background.
+     */
+    public CompletableFuture<Void> process(String eventType, String rawPayload, Priority priority) {
+        long start = System.nanoTime();
+        if (webhookMappers.isInstallationEvent(eventType)) {
+            configManager.requestRefresh();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Optional<WebhookEventMapper<?>> mapper = webhookMappers.get(eventType);
+        if (!mapper.isPresent()) {
+            LOGGER.debug("No mapper for webhook event {}", eventType);
+            metrics.record(null, Stage.DELIVERY, Outcome.DROPPED, start);
+            return CompletableFuture.completedFuture(null);
+        }
+        return process(mapper.get(), eventType, rawPayload, priority, start);
+    }
+
+    /**
+     * Applies an issue that was read from somewhere other than a webhook delivery, e.g. by the {@link Backfiller}.
+     * It goes through the same coalescing as live events, so an older snapshot never overwrites a newer one, but its
+     * SDM calls give way to those of live events.
+     */
+    public CompletableFuture<Void> process(IssueEvent event) {
+        return process(issueMapper, event, Priority.BACKGROUND, System.nanoTime());
+    }
+
+    private <E> CompletableFuture<Void> process(WebhookEventMapper<E> mapper, String eventType, String rawPayload,
+                                                Priority priority, long start) {
+        E event;
+        try {
+            event = mapper.extract(new StringReader(rawPayload));
+        } catch (RuntimeException e) {
+            metrics.record(null, Stage.DELIVERY, Outcome.FAILED, start);
+            throw e;
+        }
+        String action = mapper.getAction(event);
+        if (!mapper.handlesAction(action)) {
+            LOGGER.debug("Skipping {} event with action {}", eventType, action);
+            metrics.record(null, Stage.DELIVERY, Outcome.DROPPED, start);
+            return CompletableFuture.completedFuture(null);
+        }
+        return process(mapper, event, priority, start);
+    }
+
+    private <E> CompletableFuture<Void> process(WebhookEventMapper<E> mapper, E event, Priority priority,
+                                                long start) {
+        Optional<String> account;
+        try {
+            account = configManager.lookupAccount(mapper.getInstallationId(event));
+        } catch (RetryLaterException e) {
+            metrics.record(null, Stage.DELIVERY, Outcome.DEFERRED, start);
+            throw e;
+        }
+        if (!account.isPresent()) {
+            metrics.record(null, Stage.DELIVERY, Outcome.DROPPED, start);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String key = mapper.buildKey(event);
+        long updatedAt = mapper.getUpdatedAt(event);
+        return issueCoalescer.admit(key, updatedAt)
+                .thenCompose(admitted -> {
+                    if (!admitted) {
+                        LOGGER.debug("Skipping superseded event for key {}", key);
+                        return CompletableFuture.completedFuture(Outcome.DROPPED);
+                    }
+                    try {
+                        return issueLanes.submit(key,
+                                () -> apply(mapper, event, key, updatedAt, account.get(), priority));
+                    } catch (RejectedExecutionException e) {
+                        throw new RetryLaterException("Too many events queued for key " + key, laneRetryMillis);
+                    }
+                })
+                .whenComplete((outcome, e) ->
+                        metrics.record(account.get(), Stage.DELIVERY, e == null ? outcome : failureOutcome(e), start))
+                .thenApply(outcome -> {
+                    if (outcome == Outcome.FAILED) {
+                        // so the queue retries it, and keeps it as a dead letter once out of attempts
+                        throw new IllegalStateException("SDM did not apply the event for key " + key);
+                    }
+                    return (Void) null;
+                });
+    }
+
+    /**
+     * Runs on the issue's lane: the future it returns must only complete once SDM and the {@link IssueIndex} are up to
+     * date, or the next event for the issue could look it up before the create it needs to see has landed.
+     */
+    private <E> CompletableFuture<Outcome> apply(WebhookEventMapper<E> mapper, E event, String key, long updatedAt,
+                                                 String account, Priority priority) {
+        JsonObject data = mapper.map(event);
+        issueStore.write(account, key, updatedAt, data);
+        long contentHash = JsonHash.hash(data);
+        Optional<IndexedIssue> known = issueIndex.lookup(account, key);
+        if (known.isPresent() && Long.valueOf(contentHash).equals(known.get().getContentHash())) {
+            LOGGER.debug("Skipping event that changes nothing for key {}", key);
+            metrics.mutationSkipped(account);
+            return CompletableFuture.completedFuture(Outcome.UNCHANGED);
+        }
+
+        return upsert(mapper.getDataType(), key, data, contentHash, known, account, priority)
+                .whenComplete((outcome, e) -> {
+                    if (e == null) {
+                        LOGGER.info("Injecting webhook event for account {}", account);
+                    }
+                });
+    }
+
+    private static Outcome failureOutcome(Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        return cause instanceof RetryLaterException ? Outcome.DEFERRED : Outcome.FAILED;
+    }
+
+    /**
+     * Follow-up steps touching the {@link IssueIndex} run on the processor pool, as it may have to query the database.
+     */
+    private CompletableFuture<Outcome> upsert(String dataType, String key, JsonObject data, long contentHash,
+                                              Optional<IndexedIssue> known, String account, Priority priority) {
+        if (!known.isPresent()) {
+            return executeCreate(dataType, key, data, contentHash, account, priority);
+        }
+
+        String id = known.get().getId();
+        return executeUpdate(dataType, id, data, account, priority).thenComposeAsync(updated -> {
+            if (updated) {
+                issueIndex.put(account, key, id, contentHash);
+                return CompletableFuture.completedFuture(Outcome.UPDATED);
+            }
+            // the entity may have been removed from SDM since we indexed it
+            issueIndex.evict(account, key);
+            return executeCreate(dataType, key, data, contentHash, account, priority);
+        }, executor);
+    }
+
+    private CompletableFuture<Outcome> executeCreate(String dataType, String key, JsonObject data, long contentHash,
+                                                     String account, Priority priority) {
+        long start = System.nanoTime();
+        return mutationBatcher.add(account, dataType, key, data, priority)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        metrics.record(account, Stage.CREATE, failureOutcome(e), start);
+                        LOGGER.error("Error executing response", e);
+                    }
+                })
+                .thenComposeAsync(result -> {
+                    if (result.hasErrors()) {
+                        metrics.record(account, Stage.CREATE, Outcome.FAILED, start);
+                        return getDataId(dataType, account, key, priority).thenComposeAsync(id -> {
+                            if (id == null) {
+                                LOGGER.error("Unable to create entity for key {}. {}", key, result.getErrors());
+                                return CompletableFuture.completedFuture(Outcome.FAILED);
+                            }
+
+                            return executeUpdate(dataType, id, data, account, priority).thenApplyAsync(updated -> {
+                                issueIndex.put(account, key, id, updated ? contentHash : null);
+                                return updated ? Outcome.UPDATED : Outcome.FAILED;
+                            }, executor);
+                        }, executor);
+                    }
+
+                    metrics.record(account, Stage.CREATE, Outcome.CREATED, start);
+                    if (result.getId() != null) {
+                        issueIndex.put(account, key, result.getId(), contentHash);
+                    }
+                    LOGGER.info("Successfully created entity with key {}", key);
+                    return CompletableFuture.completedFuture(Outcome.CREATED);
+                }, executor);
+    }
+
+    private CompletableFuture<Boolean> executeUpdate(String dataType, String id, JsonObject mappedData, String account,
+                                                     Priority priority) {
+        long start = System.nanoTime();
+        return mutationBatcher.update(account, dataType, id, mappedData, priority)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        metrics.record(account, Stage.UPDATE, failureOutcome(e), start);
+                        LOGGER.error("Error executing UDPDATE response", e);
+                    }
+                })
+                .thenApply(result -> {
+                    if (result.hasErrors()) {
+                        metrics.record(account, Stage.UPDATE, Outcome.FAILED, start);
+                        LOGGER.error("Unable to update entity with id {}. {}", id, result.getErrors());
+                        return false;
+                    }
+
+                    metrics.record(account, Stage.UPDATE, Outcome.UPDATED, start);
+                    LOGGER.info("Successfully updated entity with id {}", id);
+                    return true;
+                });
+    }
+
+    /**
+     * Finds the id of an entity SDM already holds under the key. Only {@code github_issues} can be looked up so far,
+     * for any other data type the id is {@code null}.
+     */
+    private CompletableFuture<String> getDataId(String dataType, String account, String key, Priority priority) {
+        if (!GitHubIssueMapper.DATA_TYPE.equals(dataType)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        JsonObject variables = Json.createObjectBuilder()
+                .add("key", key)
+                .build();
+
+        GraphQLQuery query = graphQLQueries.get(GraphQLQueries.DATA_QUERY);
+        long start = System.nanoTime();
+        return accountScheduler.schedule(account, priority, () -> accountLimiter.call(account,
+                () -> apiManager.createTokenAsync(account).thenCompose(token ->
+                        graphQLQueries.executeAsync(account, new SDMAuth(token), query, variables))))
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        metrics.record(account, Stage.LOOKUP, failureOutcome(e), start);
+                        LOGGER.error("Error executing response", e);
+                    }
+                })
+                .thenApply(response -> {
+                    JsonArray errors = response.getJsonArray("errors");
+                    if (errors.size() > 0) {
+                        metrics.graphQLErrors(account, errors.size());
+                        metrics.record(account, Stage.LOOKUP, Outcome.FAILED, start);
+                        return null;
+                    }
+
+                    JsonArray nodes = response.getJsonObject("data").getJsonObject("gitHubIssues")
+                            .getJsonArray("nodes");
+                    if (nodes.size() > 0) {
+                        metrics.record(account, Stage.LOOKUP, Outcome.OK, start);
+                        return nodes.get(0).asJsonObject().getString("id");
+                    }
+
+                    metrics.record(account, Stage.LOOKUP, Outcome.FAILED, start);
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,291 @@
+package org.acme.github.issues;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.acme.github.issues.dao.DeadLetterDao;
+import org.acme.github.issues.dao.WebhookDeliveryDao;
+import org.acme.github.issues.model.WebhookDelivery;
+import org.acme.github.issues.utils.WebhookEventMapper;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable queue between the webhook endpoint and SDM. Deliveries are persisted on the request thread and drained by
+ * a fixed pool of workers, so a slow SDM API never holds up GitHub or the HTTP worker pool. A delivery stays claimed
+ * until the {@link WebhookProcessor} finishes with it; at most {@code webhook.queue.max.in.flight} are open at once.
+ * Several nodes can share the queue; {@link QueuePartitions} decides which deliveries each one claims. Deliveries
+ * still failing after {@code webhook.queue.max.attempts} are moved to the dead letters, see {@link DeadLetterReplayer}.
+ * Deliveries are accepted from startup, but draining only begins once the {@link Warmup} is done, and is retried with
+ * backoff for as long as the node cannot join the queue.
+ */
+@ApplicationScoped
+public class WebhookQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebhookQueue.class);
+    private static final long MAX_START_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @ConfigProperty(name = "webhook.queue.workers", defaultValue = "4")
+    int workers;
+
+    @ConfigProperty(name = "webhook.queue.batch.size", defaultValue = "10")
+    int batchSize;
+
+    @ConfigProperty(name = "webhook.queue.poll.millis", defaultValue = "500")
+    long pollMillis;
+
+    @ConfigProperty(name = "webhook.queue.max.in.flight", defaultValue = "200")
+    int maxInFlight;
+
+    @ConfigProperty(name = "webhook.queue.max.attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "webhook.queue.retry.millis", defaultValue = "1000")
+    long retryMillis;
+
+    @Inject
+    Jdbi jdbi;
+
+    @Inject
+    WebhookProcessor webhookProcessor;
+
+    @Inject
+    QueuePartitions queuePartitions;
+
+    @Inject
+    DeliveryDeduplicator deliveryDeduplicator;
+
+    @Inject
+    WebhookMappers webhookMappers;
+
+    @Inject
+    Warmup warmup;
+
+    private WebhookDeliveryDao dao;
+    private DeadLetterDao deadLetterDao;
+    private Semaphore inFlight;
+    private volatile boolean running;
+    private boolean stopped;
+    private ExecutorService executor;
+    private ScheduledExecutorService starter;
+
+    @PostConstruct
+    public void init() {
+        dao = jdbi.onDemand(WebhookDeliveryDao.class);
+        deadLetterDao = jdbi.onDemand(DeadLetterDao.class);
+        inFlight = new Semaphore(maxInFlight);
+        starter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "webhook-queue-start");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        warmup.whenDone().thenRun(() -> start(pollMillis));
+    }
+
+    private void start(long backoffMillis) {
+        try {
+            start();
+        } catch (RuntimeException e) {
+            // nothing else would ever start the workers, while the endpoint keeps accepting deliveries
+            LOGGER.error("Could not start the webhook queue, retrying in {}ms", backoffMillis, e);
+            long nextBackoffMillis = Math.min(backoffMillis * 2, MAX_START_BACKOFF_MILLIS);
+            try {
+                starter.schedule(() -> start(nextBackoffMillis), backoffMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException re) {
+                LOGGER.debug("Not retrying the webhook queue start, shutting down");
+            }
+        }
+    }
+
+    private synchronized void start() {
+        if (stopped) {
+            return;
+        }
+        queuePartitions.join();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "webhook-queue-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::drain);
+        }
+        LOGGER.info("Started {} webhook queue workers", workers);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        synchronized (this) {
+            stopped = true;
+            running = false;
+        }
+        starter.shutdownNow();
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+            // handing partitions over while deliveries are still in flight would let another node apply a later
+            // event for the same issue first
+            if (!inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+                LOGGER.warn("Webhook deliveries still in flight, leaving the queue partitions to expire");
+                return;
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        queuePartitions.leave();
+    }
+
+    public long enqueue(String eventType, String payload) {
+        return dao.insert(eventType, payload, partition(eventType, payload));
+    }
+
+    /**
+     * @param deliveryId GitHub's {@code X-GitHub-Delivery} id, or {@code null} to queue without deduplication.
+     * @return the id of the queued delivery, or empty if GitHub already delivered it within the dedup window.
+     */
+    public Optional<Long> enqueue(String eventType, String deliveryId, String payload) {
+        if (deliveryId == null) {
+            return Optional.of(enqueue(eventType, payload));
+        }
+        if (deliveryDeduplicator.isDuplicate(deliveryId)) {
+            return Optional.empty();
+        }
+        Optional<Long> id = dao.insertOnce(deliveryId, eventType, payload, partition(eventType, payload));
+        deliveryDeduplicator.accepted(deliveryId);
+        return id;
+    }
+
+    /**
+     * Deliveries for the same issue share a partition. Anything else, such as installation events, goes anywhere.
+     */
+    private int partition(String eventType, String payload) {
+        Optional<WebhookEventMapper<?>> mapper = webhookMappers.get(eventType);
+        if (mapper.isPresent()) {
+            try {
+                return queuePartitions.partitionOf(mapper.get().extractKey(new StringReader(payload)));
+            } catch (RuntimeException e) {
+                LOGGER.debug("No issue in {} delivery, queueing it in any partition", eventType);
+            }
+        }
+        return queuePartitions.anyPartition();
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                int permits = acquire();
+                if (permits == 0) {
+                    continue;
+                }
+
+                List<WebhookDelivery> deliveries;
+                int claimed = 0;
+                try {
+                    deliveries = queuePartitions.claim(permits);
+                    claimed = deliveries.size();
+                } finally {
+                    // give back what was not claimed, all of it if the claim failed
+                    inFlight.release(permits - claimed);
+                }
+                if (deliveries.isEmpty()) {
+                    Thread.sleep(pollMillis);
+                    continue;
+                }
+                deliveries.forEach(this::process);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.error("Error draining webhook queue", e);
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for room to process at least one more delivery, then takes as much room as is free up to a batch.
+     */
+    private int acquire() throws InterruptedException {
+        if (!inFlight.tryAcquire(pollMillis, TimeUnit.MILLISECONDS)) {
+            return 0;
+        }
+        int permits = 1;
+        while (permits < batchSize && inFlight.tryAcquire()) {
+            permits++;
+        }
+        return permits;
+    }
+
+    private void process(WebhookDelivery delivery) {
+        CompletableFuture<Void> result;
+        try {
+            result = webhookProcessor.process(delivery.getEventType(), delivery.getPayload());
+        } catch (Exception e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+
+        result.whenComplete((v, e) -> {
+            try {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (e == null) {
+                    dao.delete(delivery.getId());
+                } else if (cause instanceof RetryLaterException) {
+                    dao.defer(delivery.getId(), ((RetryLaterException) cause).getRetryAfterMillis());
+                } else {
+                    retry(delivery, cause);
+                }
+            } catch (Exception dbe) {
+                LOGGER.error("Error acknowledging {}", delivery, dbe);
+            } finally {
+                queuePartitions.finished(delivery);
+                inFlight.release();
+            }
+        });
+    }
+
+    private void retry(WebhookDelivery delivery, Throwable cause) {
+        if (delivery.getAttempts() >= maxAttempts) {
+            LOGGER.error("Giving up on {} after {} attempts", delivery, delivery.getAttempts(), cause);
+            deadLetterDao.moveDelivery(delivery.getId(), DeadLetterReplayer.describe(cause));
+            return;
+        }
+
+        long delayMillis = retryMillis << Math.min(delivery.getAttempts() - 1, 16);
+        LOGGER.warn("Error processing {}, retrying in {}ms", delivery, delayMillis, cause);
+        dao.release(delivery.getId(), delayMillis);
+    }
+}
@@ -0,0 +1,63 @@
+package org.acme.github.issues.backfill;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import org.acme.github.issues.model.IssueEvent;
+
+/**
+ * Synthetic issues for one installation, for running a backfill end to end without a GitHub export.
+ */
+public class GeneratedIssueSource implements IssueSource {
+    private static final Instant CREATED_AT = Instant.parse("2019-01-01T00:00:00Z");
+
+    private final int installationId;
+    private final long count;
+    private long next;
+
+    public GeneratedIssueSource(int installationId, long count) {
+        this.installationId = installationId;
+        this.count = count;
+    }
+
+    @Override
+    public IssueEvent next() {
+        if (next >= count) {
+            return null;
+        }
+        long number = ++next;
+
+        IssueEvent event = new IssueEvent();
+        event.setInstallationId(installationId);
+        event.setRepositoryId(installationId);
+        event.setRepositoryNodeId(nodeId("010:Repository" + installationId));
+        event.setIssueId(installationId * 1_000_000L + number);
+        event.setIssueNodeId(nodeId("05:Issue" + event.getIssueId()));
+        event.setNumber((int) number);
+        event.setTitle("Backfilled issue " + number);
+        event.setBody("Generated for installation " + installationId);
+        event.setState(number % 3 == 0 ? "closed" : "open");
+        event.setCreatedAt(CREATED_AT.plusSeconds(number * 60).toString());
+        event.setUpdatedAt(CREATED_AT.plusSeconds(number * 60 + 30).toString());
+        event.setAuthorLogin("backfill-bot");
+        return event;
+    }
+
+    @Override
+    public void skip(long records) {
+        next = Math.min(count, next + records);
+    }
+
+    @Override
+    public String describe() {
+        return "generated:" + installationId + ":" + count;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static String nodeId(String id) {
+        return Base64.getEncoder().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+}
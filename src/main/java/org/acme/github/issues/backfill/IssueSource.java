@@ -0,0 +1,28 @@
+package org.acme.github.issues.backfill;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.acme.github.issues.model.IssueEvent;
+
+/**
+ * Existing issues to load into SDM, read in a stable order so a backfill can resume by record index.
+ */
+public interface IssueSource extends Closeable {
+
+    /**
+     * @return the next issue, or {@code null} once the source is exhausted.
+     * @throws IllegalArgumentException if the record could not be read as an issue. The record still counts as
+     * consumed.
+     */
+    IssueEvent next() throws IOException;
+
+    /**
+     * Skips the first {@code records} records, to resume after a checkpoint.
+     */
+    void skip(long records) throws IOException;
+
+    /**
+     * @return identifies what is being read, e.g. the file; a checkpoint only applies to the source it was taken for.
+     */
+    String describe();
+}
@@ -0,0 +1,55 @@
+package org.acme.github.issues.backfill;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.acme.github.issues.model.IssueEvent;
+import org.acme.github.issues.utils.GitHubIssueExtractor;
+
+/**
+ * Reads an export with one issue per line. Each line is shaped like an {@code issues} webhook payload, i.e. an object
+ * with {@code installation}, {@code repository} and {@code issue}, so it is read by the same
+ * {@link GitHubIssueExtractor} as live deliveries. Only one line is held in memory at a time.
+ */
+public class NdjsonIssueSource implements IssueSource {
+    private final Path path;
+    private final BufferedReader reader;
+
+    public NdjsonIssueSource(Path path) throws IOException {
+        this.path = path;
+        this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public IssueEvent next() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.trim().isEmpty()) {
+            line = reader.readLine();
+        }
+        return line == null ? null : GitHubIssueExtractor.extract(new StringReader(line));
+    }
+
+    @Override
+    public void skip(long records) throws IOException {
+        long skipped = 0;
+        String line;
+        while (skipped < records && (line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                skipped++;
+            }
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "file:" + path.toAbsolutePath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,102 @@
+package org.acme.github.issues.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Compresses request bodies of at least {@code minBytes} with gzip or deflate. The body is compressed as it is
+ * written: only its first {@code minBytes} are held back, to decide whether it is worth compressing, and smaller
+ * bodies go out as they are without a {@code Content-Encoding}. Relies on the HTTP engine sending the headers only
+ * once the entity has been written, as the Apache engines do.
+ */
+public class CompressingWriterInterceptor implements WriterInterceptor {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private final String encoding;
+    private final int minBytes;
+
+    public CompressingWriterInterceptor(String encoding, int minBytes) {
+        if (!GZIP.equals(encoding) && !DEFLATE.equals(encoding)) {
+            throw new IllegalArgumentException("Unsupported content encoding " + encoding);
+        }
+        this.encoding = encoding;
+        this.minBytes = Math.max(minBytes, 0);
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        if (context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+        ThresholdOutputStream out = new ThresholdOutputStream(context.getOutputStream(), context.getHeaders());
+        context.setOutputStream(out);
+        context.proceed();
+        out.finish();
+    }
+
+    private class ThresholdOutputStream extends OutputStream {
+        private final OutputStream target;
+        private final MultivaluedMap<String, Object> headers;
+        private final byte[] head = new byte[minBytes];
+        private int headLength;
+        private DeflaterOutputStream compressor;
+        private boolean finished;
+
+        private ThresholdOutputStream(OutputStream target, MultivaluedMap<String, Object> headers) {
+            this.target = target;
+            this.headers = headers;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (compressor == null && headLength + len < minBytes) {
+                System.arraycopy(b, off, head, headLength, len);
+                headLength += len;
+                return;
+            }
+            if (compressor == null) {
+                headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+                compressor = GZIP.equals(encoding) ? new GZIPOutputStream(target, 8192)
+                        : new DeflaterOutputStream(target);
+                compressor.write(head, 0, headLength);
+            }
+            compressor.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            // flushing a compressor early costs ratio, and the engine only sends the body once it is complete
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (compressor != null) {
+                compressor.finish();
+            } else {
+                target.write(head, 0, headLength);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            target.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.acme.github.issues.client;
 
+import java.util.concurrent.CompletionStage;
 import javax.json.JsonObject;
 import javax.ws.rs.BeanParam;
 import javax.ws.rs.Consumes;
@@ -9,9 +10,11 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import org.acme.github.issues.model.SDMAuth;
-import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
-@RegisterRestClient
+/**
+ * Built as a plain RESTEasy proxy by {@code HttpTransport}, so MicroProfile's default response mapper does not apply:
+ * any non-2xx answer is thrown as a {@link WebApplicationException} carrying the response status and headers.
+ */
 @Consumes("application/json")
 @Produces("application/json")
 public interface SDMApiClient {
@@ -20,4 +23,9 @@ public interface SDMApiClient {
     @Path("/a/{accountName}/graphql")
     JsonObject executeQuery(@PathParam ("accountName") String accountName, @BeanParam SDMAuth sdmAuth, JsonObject body) throws
             WebApplicationException;
+
+    @POST
+    @Path("/a/{accountName}/graphql")
+    CompletionStage<JsonObject> executeQueryAsync(@PathParam("accountName") String accountName,
+                                                  @BeanParam SDMAuth sdmAuth, JsonObject body);
 }
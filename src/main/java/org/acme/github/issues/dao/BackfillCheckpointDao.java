@@ -0,0 +1,19 @@
+package org.acme.github.issues.dao;
+
+import java.util.Optional;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * Progress of named backfill runs: every record of the source before {@code next_index} has been applied.
+ */
+public interface BackfillCheckpointDao {
+
+    @SqlQuery("SELECT next_index FROM backfill_checkpoints WHERE name = :name AND source = :source")
+    Optional<Long> find(String name, String source);
+
+    @SqlUpdate("INSERT INTO backfill_checkpoints (name, source, next_index) VALUES (:name, :source, :nextIndex)"
+            + " ON CONFLICT (name) DO UPDATE SET source = excluded.source, next_index = excluded.next_index,"
+            + " updated_at = now()")
+    void save(String name, String source, long nextIndex);
+}
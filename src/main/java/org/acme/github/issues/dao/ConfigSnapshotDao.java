@@ -0,0 +1,18 @@
+package org.acme.github.issues.dao;
+
+import java.util.Optional;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * The installation configs last loaded from SDM, as the JSON array of config nodes it returned.
+ */
+public interface ConfigSnapshotDao {
+
+    @SqlQuery("SELECT data FROM config_snapshots WHERE app_id = :appId")
+    Optional<String> find(String appId);
+
+    @SqlUpdate("INSERT INTO config_snapshots (app_id, data) VALUES (:appId, CAST(:data AS jsonb))"
+            + " ON CONFLICT (app_id) DO UPDATE SET data = excluded.data, saved_at = now()")
+    void save(String appId, String data);
+}
@@ -0,0 +1,62 @@
+package org.acme.github.issues.dao;
+
+import java.util.List;
+import org.acme.github.issues.model.DeadLetter;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * Webhook deliveries that failed every attempt. A replay claims due dead letters by pushing their
+ * {@code next_attempt_at} out by a lease, so concurrent replays on other nodes skip them and the claims of a node that
+ * dies lapse on their own.
+ */
+public interface DeadLetterDao {
+
+    /**
+     * Moves a delivery from the queue to the dead letters in one statement, so it is never in both or neither.
+     */
+    @SqlUpdate("WITH failed AS ("
+            + "   DELETE FROM webhook_deliveries WHERE id = :deliveryId RETURNING event_type, payload, attempts"
+            + " ) INSERT INTO webhook_dead_letters (event_type, payload, error, attempts)"
+            + " SELECT event_type, payload, :error, attempts FROM failed")
+    int moveDelivery(long deliveryId, String error);
+
+    @SqlQuery("SELECT count(*) FROM webhook_dead_letters")
+    long count();
+
+    /**
+     * Makes every dead letter due again with a fresh attempt budget, for a new replay.
+     */
+    @SqlUpdate("UPDATE webhook_dead_letters SET replay_attempts = 0, next_attempt_at = now()")
+    int resetAll();
+
+    @SqlQuery("UPDATE webhook_dead_letters SET next_attempt_at = now() + :leaseMillis * interval '1 millisecond'"
+            + " WHERE id IN ("
+            + "   SELECT id FROM webhook_dead_letters"
+            + "   WHERE next_attempt_at <= now() AND replay_attempts < :maxAttempts"
+            + "   ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED"
+            + " ) RETURNING id, event_type, payload, replay_attempts")
+    @RegisterBeanMapper(DeadLetter.class)
+    List<DeadLetter> claim(int limit, int maxAttempts, long leaseMillis);
+
+    /**
+     * @return how many dead letters a replay with this attempt budget could still pick up, claimed or not.
+     */
+    @SqlQuery("SELECT count(*) FROM webhook_dead_letters WHERE replay_attempts < :maxAttempts")
+    long countReplayable(int maxAttempts);
+
+    @SqlUpdate("DELETE FROM webhook_dead_letters WHERE id = :id")
+    void delete(long id);
+
+    @SqlUpdate("UPDATE webhook_dead_letters SET replay_attempts = replay_attempts + 1, error = :error,"
+            + " next_attempt_at = now() + :delayMillis * interval '1 millisecond' WHERE id = :id")
+    void failed(long id, String error, long delayMillis);
+
+    /**
+     * Like {@link #failed(long, String, long)}, but without counting an attempt.
+     */
+    @SqlUpdate("UPDATE webhook_dead_letters SET next_attempt_at = now() + :delayMillis * interval '1 millisecond'"
+            + " WHERE id = :id")
+    void defer(long id, long delayMillis);
+}
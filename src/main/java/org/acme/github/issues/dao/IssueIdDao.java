@@ -0,0 +1,30 @@
+package org.acme.github.issues.dao;
+
+import java.util.List;
+import java.util.Optional;
+import org.acme.github.issues.model.IndexedIssue;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * Maps GitHub issue keys (see {@code GitHubIssueMapper.buildV3Key}) to the id SDM assigned to the issue, and the hash
+ * of the data last written for it.
+ */
+public interface IssueIdDao {
+
+    @SqlQuery("SELECT id, content_hash FROM github_issue_ids WHERE account = :account AND key = :key")
+    @RegisterBeanMapper(IndexedIssue.class)
+    Optional<IndexedIssue> find(String account, String key);
+
+    @SqlUpdate("INSERT INTO github_issue_ids (account, key, id, content_hash)"
+            + " VALUES (:account, :key, :id, :contentHash)"
+            + " ON CONFLICT (account, key) DO UPDATE SET id = excluded.id, content_hash = excluded.content_hash")
+    void upsert(String account, String key, String id, Long contentHash);
+
+    @SqlUpdate("DELETE FROM github_issue_ids WHERE account = :account AND key = :key")
+    void delete(String account, String key);
+
+    @SqlQuery("SELECT account FROM github_issue_ids GROUP BY account ORDER BY count(*) DESC LIMIT :limit")
+    List<String> largestAccounts(int limit);
+}
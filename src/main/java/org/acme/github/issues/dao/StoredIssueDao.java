@@ -0,0 +1,31 @@
+package org.acme.github.issues.dao;
+
+import java.util.Optional;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * The {@code sor_data_github_issues} store. Rows are written in bulk by {@link StoredIssueWriter}: copied into a
+ * per-connection staging table, then merged.
+ */
+public interface StoredIssueDao {
+
+    @SqlQuery("SELECT data FROM sor_data_github_issues WHERE account = :account AND key = :key")
+    Optional<String> find(String account, String key);
+
+    @SqlUpdate("CREATE TEMPORARY TABLE IF NOT EXISTS sor_data_github_issues_staging ("
+            + " account varchar(40), key varchar(2048), ts timestamp with time zone, data jsonb"
+            + ") ON COMMIT DELETE ROWS")
+    void createStaging();
+
+    /**
+     * Moves the staged rows into the store. Only the newest staged snapshot of each issue is kept, and it replaces
+     * the stored one unless that one is newer.
+     */
+    @SqlUpdate("INSERT INTO sor_data_github_issues (account, key, ts, data)"
+            + " SELECT DISTINCT ON (account, key) account, key, ts, data FROM sor_data_github_issues_staging"
+            + " ORDER BY account, key, ts DESC"
+            + " ON CONFLICT (account, key) DO UPDATE SET ts = excluded.ts, data = excluded.data"
+            + " WHERE sor_data_github_issues.ts <= excluded.ts")
+    int mergeStaging();
+}
@@ -0,0 +1,75 @@
+package org.acme.github.issues.dao;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import org.acme.github.issues.model.StoredIssue;
+import org.jdbi.v3.core.Jdbi;
+import org.postgresql.PGConnection;
+
+/**
+ * Bulk upserts into {@code sor_data_github_issues}: a batch is streamed into a staging table with {@code COPY}, then
+ * merged with a single {@code INSERT ... ON CONFLICT}, all in one transaction.
+ */
+public class StoredIssueWriter {
+    private static final String COPY = "COPY sor_data_github_issues_staging (account, key, ts, data) FROM STDIN";
+
+    private final Jdbi jdbi;
+
+    public StoredIssueWriter(Jdbi jdbi) {
+        this.jdbi = jdbi;
+    }
+
+    /**
+     * @return the number of rows inserted or replaced; issues older than what is already stored are not.
+     */
+    public int upsert(Collection<StoredIssue> issues) {
+        StringBuilder rows = new StringBuilder(issues.size() * 1024);
+        for (StoredIssue issue : issues) {
+            appendField(rows, issue.getAccount()).append('\t');
+            appendField(rows, issue.getKey()).append('\t');
+            rows.append(Instant.ofEpochMilli(issue.getUpdatedAt())).append('\t');
+            appendField(rows, issue.getData()).append('\n');
+        }
+
+        return jdbi.inTransaction(handle -> {
+            StoredIssueDao dao = handle.attach(StoredIssueDao.class);
+            dao.createStaging();
+            try {
+                handle.getConnection().unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY, new StringReader(rows.toString()));
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("Could not copy " + issues.size() + " issues", e);
+            }
+            return dao.mergeStaging();
+        });
+    }
+
+    /**
+     * Escapes a value for the text format of {@code COPY}.
+     */
+    private static StringBuilder appendField(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out;
+    }
+}
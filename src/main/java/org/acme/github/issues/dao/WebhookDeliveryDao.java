@@ -0,0 +1,87 @@
+package org.acme.github.issues.dao;
+
+import java.util.List;
+import java.util.Optional;
+import org.acme.github.issues.model.WebhookDelivery;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * Postgres backed queue of raw GitHub webhook deliveries. Each delivery belongs to one of a fixed number of
+ * partitions, and a claim holds a lease that the claiming node keeps renewing until it is done with the delivery.
+ */
+public interface WebhookDeliveryDao {
+
+    @SqlUpdate("INSERT INTO webhook_deliveries (event_type, payload, partition_id)"
+            + " VALUES (:eventType, :payload, :partitionId)")
+    @GetGeneratedKeys("id")
+    long insert(String eventType, String payload, int partitionId);
+
+    /**
+     * Queues a delivery unless its {@code X-GitHub-Delivery} id was recorded before. Recording the id and queueing
+     * happen in one statement, so when GitHub redelivers to two nodes at once only one of them queues the event.
+     *
+     * @return the id of the queued delivery, or empty for a redelivery.
+     */
+    @SqlQuery("WITH accepted AS ("
+            + "   INSERT INTO webhook_delivery_ids (delivery_id) VALUES (:deliveryId)"
+            + "   ON CONFLICT DO NOTHING RETURNING delivery_id"
+            + " ) INSERT INTO webhook_deliveries (event_type, payload, partition_id)"
+            + " SELECT :eventType, :payload, :partitionId FROM accepted RETURNING id")
+    Optional<Long> insertOnce(String deliveryId, String eventType, String payload, int partitionId);
+
+    /**
+     * Claims up to {@code limit} pending deliveries of the given partitions in arrival order. Rows locked by another
+     * worker are skipped so concurrent workers never claim the same delivery.
+     */
+    @SqlQuery("UPDATE webhook_deliveries SET claimed_at = now(), claimed_by = :nodeId,"
+            + " lease_until = now() + :leaseMillis * interval '1 millisecond', attempts = attempts + 1"
+            + " WHERE id IN ("
+            + "   SELECT id FROM webhook_deliveries"
+            + "   WHERE claimed_at IS NULL AND available_at <= now() AND partition_id IN (<partitions>)"
+            + "   ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED"
+            + " ) RETURNING id, event_type, payload, partition_id, attempts")
+    @RegisterBeanMapper(WebhookDelivery.class)
+    List<WebhookDelivery> claim(String nodeId, @BindList("partitions") List<Integer> partitions, int limit,
+                                long leaseMillis);
+
+    @SqlUpdate("DELETE FROM webhook_deliveries WHERE id = :id")
+    void delete(long id);
+
+    /**
+     * Returns a claimed delivery to the queue, making it available again after {@code delayMillis}.
+     */
+    @SqlUpdate("UPDATE webhook_deliveries SET claimed_at = NULL, claimed_by = NULL,"
+            + " available_at = now() + :delayMillis * interval '1 millisecond' WHERE id = :id")
+    void release(long id, long delayMillis);
+
+    /**
+     * Like {@link #release(long, long)}, but without counting the claim as an attempt. Used when the delivery was not
+     * tried at all, e.g. because its account is throttled.
+     */
+    @SqlUpdate("UPDATE webhook_deliveries SET claimed_at = NULL, claimed_by = NULL, attempts = attempts - 1,"
+            + " available_at = now() + :delayMillis * interval '1 millisecond' WHERE id = :id")
+    void defer(long id, long delayMillis);
+
+    @SqlUpdate("UPDATE webhook_deliveries SET lease_until = now() + :leaseMillis * interval '1 millisecond'"
+            + " WHERE claimed_at IS NOT NULL AND claimed_by = :nodeId")
+    int renewClaims(String nodeId, long leaseMillis);
+
+    /**
+     * Returns every delivery claimed by the node to the queue. Used on startup to recover deliveries that were in
+     * flight when the node's previous process stopped.
+     */
+    @SqlUpdate("UPDATE webhook_deliveries SET claimed_at = NULL, claimed_by = NULL"
+            + " WHERE claimed_at IS NOT NULL AND claimed_by = :nodeId")
+    int releaseClaims(String nodeId);
+
+    /**
+     * Returns deliveries whose claim was not renewed in time, e.g. because the node holding them died.
+     */
+    @SqlUpdate("UPDATE webhook_deliveries SET claimed_at = NULL, claimed_by = NULL"
+            + " WHERE claimed_at IS NOT NULL AND lease_until < now()")
+    int releaseExpiredClaims();
+}
@@ -0,0 +1,17 @@
+package org.acme.github.issues.dao;
+
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * {@code X-GitHub-Delivery} ids of the deliveries accepted within the dedup window. Ids are recorded by
+ * {@link WebhookDeliveryDao#insertOnce(String, String, String, int)}.
+ */
+public interface WebhookDeliveryIdDao {
+
+    @SqlQuery("SELECT EXISTS (SELECT 1 FROM webhook_delivery_ids WHERE delivery_id = :deliveryId)")
+    boolean exists(String deliveryId);
+
+    @SqlUpdate("DELETE FROM webhook_delivery_ids WHERE received_at < now() - :windowMillis * interval '1 millisecond'")
+    int prune(long windowMillis);
+}
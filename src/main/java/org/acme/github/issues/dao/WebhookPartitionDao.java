@@ -0,0 +1,54 @@
+package org.acme.github.issues.dao;
+
+import java.util.List;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * Live nodes and their leases on the partitions of {@code webhook_deliveries}. Times come from the database clock, so
+ * clock skew between nodes does not matter.
+ */
+public interface WebhookPartitionDao {
+
+    @SqlUpdate("INSERT INTO webhook_partitions (partition_id) SELECT generate_series(0, :count - 1)"
+            + " ON CONFLICT (partition_id) DO NOTHING")
+    void create(int count);
+
+    @SqlUpdate("INSERT INTO webhook_nodes (node_id) VALUES (:nodeId)"
+            + " ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()")
+    void heartbeat(String nodeId);
+
+    @SqlUpdate("DELETE FROM webhook_nodes WHERE heartbeat_at < now() - :leaseMillis * interval '1 millisecond'")
+    int expireNodes(long leaseMillis);
+
+    @SqlUpdate("DELETE FROM webhook_nodes WHERE node_id = :nodeId")
+    void leave(String nodeId);
+
+    @SqlQuery("SELECT count(*) FROM webhook_nodes")
+    int countNodes();
+
+    /**
+     * @return the partitions the node still holds; any other lease it thought it had has expired.
+     */
+    @SqlQuery("UPDATE webhook_partitions SET lease_until = now() + :leaseMillis * interval '1 millisecond'"
+            + " WHERE owner = :nodeId RETURNING partition_id")
+    List<Integer> renew(String nodeId, long leaseMillis);
+
+    /**
+     * Takes up to {@code limit} partitions that nobody holds a live lease on.
+     */
+    @SqlQuery("UPDATE webhook_partitions SET owner = :nodeId,"
+            + " lease_until = now() + :leaseMillis * interval '1 millisecond'"
+            + " WHERE partition_id IN ("
+            + "   SELECT partition_id FROM webhook_partitions"
+            + "   WHERE owner IS NULL OR lease_until < now()"
+            + "   ORDER BY partition_id LIMIT :limit FOR UPDATE SKIP LOCKED"
+            + " ) RETURNING partition_id")
+    List<Integer> acquire(String nodeId, int limit, long leaseMillis);
+
+    @SqlUpdate("UPDATE webhook_partitions SET owner = NULL WHERE partition_id = :partitionId AND owner = :nodeId")
+    void release(int partitionId, String nodeId);
+
+    @SqlUpdate("UPDATE webhook_partitions SET owner = NULL WHERE owner = :nodeId")
+    void releaseAll(String nodeId);
+}
@@ -0,0 +1,60 @@
+package org.acme.github.issues.model;
+
+public class DeadLetter {
+    private long id;
+    private String eventType;
+    private String payload;
+    private int replayAttempts;
+
+    public DeadLetter() {
+
+    }
+
+    public DeadLetter(long id, String eventType, String payload, int replayAttempts) {
+        this.id = id;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.replayAttempts = replayAttempts;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public int getReplayAttempts() {
+        return replayAttempts;
+    }
+
+    public void setReplayAttempts(int replayAttempts) {
+        this.replayAttempts = replayAttempts;
+    }
+
+    @Override
+    public String toString() {
+        return "DeadLetter{" +
+                "id=" + id +
+                ", eventType='" + eventType + '\'' +
+                ", replayAttempts=" + replayAttempts +
+                '}';
+    }
+}
@@ -0,0 +1,53 @@
+package org.acme.github.issues.model;
+
+import java.util.Objects;
+
+public class IndexedIssue {
+    private String id;
+    private Long contentHash;
+
+    public IndexedIssue() {
+
+    }
+
+    public IndexedIssue(String id, Long contentHash) {
+        this.id = id;
+        this.contentHash = contentHash;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the {@code JsonHash} of the data last written to SDM for the issue, or {@code null} if unknown.
+     */
+    public Long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(Long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IndexedIssue that = (IndexedIssue) o;
+        return Objects.equals(id, that.id) && Objects.equals(contentHash, that.contentHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, contentHash);
+    }
+}
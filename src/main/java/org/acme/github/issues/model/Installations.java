@@ -0,0 +1,71 @@
+package org.acme.github.issues.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the app's installations. Accounts are looked up by GitHub installation id through an
+ * open-addressing table of primitive ints, so a lookup neither scans the configs nor boxes the id.
+ */
+public final class Installations {
+    public static final Installations EMPTY = new Installations(Collections.emptyMap());
+
+    private final Map<String, AppConfig> byAccount;
+    private final int[] installationIds;
+    private final String[] accounts;
+    private final int mask;
+
+    public Installations(Map<String, AppConfig> byAccount) {
+        this.byAccount = Collections.unmodifiableMap(new HashMap<>(byAccount));
+
+        int capacity = Integer.highestOneBit(Math.max(byAccount.size(), 1) * 2 - 1) << 1;
+        installationIds = new int[capacity];
+        accounts = new String[capacity];
+        mask = capacity - 1;
+
+        byAccount.forEach((account, config) -> {
+            if (config.getInstallationId() != null) {
+                put(config.getInstallationId(), account);
+            }
+        });
+    }
+
+    /**
+     * @return the account the installation belongs to, or {@code null} if it is unknown.
+     */
+    public String getAccount(int installationId) {
+        for (int i = slot(installationId); accounts[i] != null; i = (i + 1) & mask) {
+            if (installationIds[i] == installationId) {
+                return accounts[i];
+            }
+        }
+        return null;
+    }
+
+    public Map<String, AppConfig> getByAccount() {
+        return byAccount;
+    }
+
+    public int size() {
+        return byAccount.size();
+    }
+
+    private void put(int installationId, String account) {
+        int i = slot(installationId);
+        while (accounts[i] != null) {
+            if (installationIds[i] == installationId) {
+                // same installation configured twice, keep the first
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        installationIds[i] = installationId;
+        accounts[i] = account;
+    }
+
+    private int slot(int installationId) {
+        int h = installationId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
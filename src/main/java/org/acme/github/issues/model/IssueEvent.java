@@ -0,0 +1,166 @@
+package org.acme.github.issues.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a GitHub {@code issues} webhook payload that are sent to SDM.
+ */
+public class IssueEvent {
+    private String action;
+    private int installationId;
+    private long issueId;
+    private String issueNodeId;
+    private int number;
+    private String title;
+    private String body;
+    private String state;
+    private String createdAt;
+    private String updatedAt;
+    private String authorLogin;
+    private List<Assignee> assignees = new ArrayList<>();
+    private long repositoryId;
+    private String repositoryNodeId;
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public int getInstallationId() {
+        return installationId;
+    }
+
+    public void setInstallationId(int installationId) {
+        this.installationId = installationId;
+    }
+
+    public long getIssueId() {
+        return issueId;
+    }
+
+    public void setIssueId(long issueId) {
+        this.issueId = issueId;
+    }
+
+    public String getIssueNodeId() {
+        return issueNodeId;
+    }
+
+    public void setIssueNodeId(String issueNodeId) {
+        this.issueNodeId = issueNodeId;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getAuthorLogin() {
+        return authorLogin;
+    }
+
+    public void setAuthorLogin(String authorLogin) {
+        this.authorLogin = authorLogin;
+    }
+
+    public List<Assignee> getAssignees() {
+        return assignees;
+    }
+
+    public void setAssignees(List<Assignee> assignees) {
+        this.assignees = assignees;
+    }
+
+    public long getRepositoryId() {
+        return repositoryId;
+    }
+
+    public void setRepositoryId(long repositoryId) {
+        this.repositoryId = repositoryId;
+    }
+
+    public String getRepositoryNodeId() {
+        return repositoryNodeId;
+    }
+
+    public void setRepositoryNodeId(String repositoryNodeId) {
+        this.repositoryNodeId = repositoryNodeId;
+    }
+
+    public static class Assignee {
+        private long id;
+        private String nodeId;
+
+        public Assignee() {
+
+        }
+
+        public Assignee(long id, String nodeId) {
+            this.id = id;
+            this.nodeId = nodeId;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+}
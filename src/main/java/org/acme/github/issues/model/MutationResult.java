@@ -0,0 +1,34 @@
+package org.acme.github.issues.model;
+
+import javax.json.JsonArray;
+import javax.json.JsonValue;
+
+public class MutationResult {
+    private final String id;
+    private final JsonArray errors;
+
+    public MutationResult(String id, JsonArray errors) {
+        this.id = id;
+        this.errors = errors == null ? JsonValue.EMPTY_JSON_ARRAY : errors;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public JsonArray getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return errors.size() > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MutationResult{" +
+                "id='" + id + '\'' +
+                ", errors=" + errors +
+                '}';
+    }
+}
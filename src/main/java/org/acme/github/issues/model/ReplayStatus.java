@@ -0,0 +1,79 @@
+package org.acme.github.issues.model;
+
+public class ReplayStatus {
+    private String state;
+    private double maxPerSecond;
+    private int maxInFlight;
+    private long dispatched;
+    private long applied;
+    private long failed;
+    private int inFlight;
+    private long remaining;
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public double getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    public void setMaxPerSecond(double maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    public void setDispatched(long dispatched) {
+        this.dispatched = dispatched;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public void setApplied(long applied) {
+        this.applied = applied;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Dead letters left in the table, including those that used up their attempts in this replay.
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(long remaining) {
+        this.remaining = remaining;
+    }
+}
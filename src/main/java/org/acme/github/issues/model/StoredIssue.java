@@ -0,0 +1,57 @@
+package org.acme.github.issues.model;
+
+public class StoredIssue {
+    private String account;
+    private String key;
+    private long updatedAt;
+    private String data;
+
+    public StoredIssue() {
+
+    }
+
+    public StoredIssue(String account, String key, long updatedAt, String data) {
+        this.account = account;
+        this.key = key;
+        this.updatedAt = updatedAt;
+        this.data = data;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the issue's {@code updated_at} in epoch milliseconds; the newest snapshot of an issue wins.
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * @return the mapped issue, as JSON.
+     */
+    public String getData() {
+        return data;
+    }
+
+    public void setData(String data) {
+        this.data = data;
+    }
+}
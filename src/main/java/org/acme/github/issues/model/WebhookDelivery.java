@@ -0,0 +1,71 @@
+package org.acme.github.issues.model;
+
+public class WebhookDelivery {
+    private long id;
+    private String eventType;
+    private String payload;
+    private int partitionId;
+    private int attempts;
+
+    public WebhookDelivery() {
+
+    }
+
+    public WebhookDelivery(long id, String eventType, String payload, int partitionId, int attempts) {
+        this.id = id;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.partitionId = partitionId;
+        this.attempts = attempts;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public int getPartitionId() {
+        return partitionId;
+    }
+
+    public void setPartitionId(int partitionId) {
+        this.partitionId = partitionId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    @Override
+    public String toString() {
+        return "WebhookDelivery{" +
+                "id=" + id +
+                ", eventType='" + eventType + '\'' +
+                ", partitionId=" + partitionId +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+package org.acme.github.issues.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+
+/**
+ * Inflates gzip or deflate encoded entities while they are read. Entities that inflate to more than
+ * {@code maxBytes} are rejected with a 413, so a small compressed body cannot make us read an unbounded one.
+ */
+public class DecompressingReaderInterceptor implements ReaderInterceptor {
+    private final long maxBytes;
+
+    public DecompressingReaderInterceptor(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        String encoding = context.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null) {
+            return context.proceed();
+        }
+
+        InputStream in;
+        switch (encoding.trim().toLowerCase()) {
+            case "gzip":
+            case "x-gzip":
+                in = new GZIPInputStream(context.getInputStream(), 8192);
+                break;
+            case "deflate":
+                in = new InflaterInputStream(context.getInputStream());
+                break;
+            case "identity":
+                return context.proceed();
+            default:
+                throw new WebApplicationException("Unsupported content encoding " + encoding,
+                        Response.Status.UNSUPPORTED_MEDIA_TYPE);
+        }
+        context.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+        context.setInputStream(new BoundedInputStream(in, maxBytes));
+        return context.proceed();
+    }
+
+    private static class BoundedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long read;
+
+        private BoundedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) {
+            read += n;
+            if (read > maxBytes) {
+                throw new WebApplicationException("Entity inflates to more than " + maxBytes + " bytes",
+                        Response.Status.REQUEST_ENTITY_TOO_LARGE);
+            }
+        }
+    }
+}
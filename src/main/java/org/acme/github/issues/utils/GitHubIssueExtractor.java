@@ -0,0 +1,230 @@
+package org.acme.github.issues.utils;
+
+import java.io.Reader;
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParsingException;
+import org.acme.github.issues.model.IssueEvent;
+
+/**
+ * Pulls the fields {@link GitHubIssueMapper} needs out of a raw {@code issues} webhook payload in a single streaming
+ * pass. Everything else (sender, the repository's URL fields, labels, reactions, ...) is skipped by the parser and
+ * never materialised.
+ */
+public class GitHubIssueExtractor {
+
+    public static IssueEvent extract(Reader payload) {
+        IssueEvent event = new IssueEvent();
+        boolean hasInstallation = false;
+        boolean hasIssue = false;
+
+        try (JsonParser parser = Json.createParser(payload)) {
+            expect(parser, JsonParser.Event.START_OBJECT);
+            while (parser.next() == JsonParser.Event.KEY_NAME) {
+                switch (parser.getString()) {
+                    case "action":
+                        event.setAction(readString(parser));
+                        break;
+                    case "installation":
+                        readInstallation(parser, event);
+                        hasInstallation = true;
+                        break;
+                    case "issue":
+                        readIssue(parser, event);
+                        hasIssue = true;
+                        break;
+                    case "repository":
+                        readRepository(parser, event);
+                        break;
+                    default:
+                        skipValue(parser);
+                }
+            }
+        }
+
+        if (!hasInstallation || !hasIssue) {
+            throw new IllegalArgumentException("Payload is not an issue event of an app installation");
+        }
+        return event;
+    }
+
+    /**
+     * Reads only the installation id and the issue node id, which make up the issue key, and stops as soon as it has
+     * both.
+     */
+    public static IssueEvent extractKey(Reader payload) {
+        IssueEvent event = new IssueEvent();
+        boolean hasInstallation = false;
+
+        try (JsonParser parser = Json.createParser(payload)) {
+            expect(parser, JsonParser.Event.START_OBJECT);
+            while ((!hasInstallation || event.getIssueNodeId() == null)
+                    && parser.next() == JsonParser.Event.KEY_NAME) {
+                switch (parser.getString()) {
+                    case "installation":
+                        readInstallation(parser, event);
+                        hasInstallation = true;
+                        break;
+                    case "issue":
+                        readIssueNodeId(parser, event);
+                        break;
+                    default:
+                        skipValue(parser);
+                }
+            }
+        }
+
+        if (!hasInstallation || event.getIssueNodeId() == null) {
+            throw new IllegalArgumentException("Payload is not an issue event of an app installation");
+        }
+        return event;
+    }
+
+    private static void readInstallation(JsonParser parser, IssueEvent event) {
+        expect(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if ("id".equals(parser.getString())) {
+                parser.next();
+                event.setInstallationId(parser.getInt());
+            } else {
+                skipValue(parser);
+            }
+        }
+    }
+
+    private static void readIssue(JsonParser parser, IssueEvent event) {
+        expect(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "id":
+                    parser.next();
+                    event.setIssueId(parser.getLong());
+                    break;
+                case "node_id":
+                    event.setIssueNodeId(readString(parser));
+                    break;
+                case "number":
+                    parser.next();
+                    event.setNumber(parser.getInt());
+                    break;
+                case "title":
+                    event.setTitle(readString(parser));
+                    break;
+                case "body":
+                    event.setBody(readString(parser));
+                    break;
+                case "state":
+                    event.setState(readString(parser));
+                    break;
+                case "created_at":
+                    event.setCreatedAt(readString(parser));
+                    break;
+                case "updated_at":
+                    event.setUpdatedAt(readString(parser));
+                    break;
+                case "user":
+                    readUser(parser, event);
+                    break;
+                case "assignees":
+                    readAssignees(parser, event);
+                    break;
+                default:
+                    skipValue(parser);
+            }
+        }
+    }
+
+    private static void readIssueNodeId(JsonParser parser, IssueEvent event) {
+        expect(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if ("node_id".equals(parser.getString())) {
+                event.setIssueNodeId(readString(parser));
+            } else {
+                skipValue(parser);
+            }
+        }
+    }
+
+    private static void readUser(JsonParser parser, IssueEvent event) {
+        expect(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if ("login".equals(parser.getString())) {
+                event.setAuthorLogin(readString(parser));
+            } else {
+                skipValue(parser);
+            }
+        }
+    }
+
+    private static void readAssignees(JsonParser parser, IssueEvent event) {
+        JsonParser.Event value = parser.next();
+        if (value == JsonParser.Event.VALUE_NULL) {
+            return;
+        }
+        if (value != JsonParser.Event.START_ARRAY) {
+            throw new JsonParsingException("Expected " + JsonParser.Event.START_ARRAY + " but got " + value,
+                    parser.getLocation());
+        }
+        while (parser.next() == JsonParser.Event.START_OBJECT) {
+            IssueEvent.Assignee assignee = new IssueEvent.Assignee();
+            while (parser.next() == JsonParser.Event.KEY_NAME) {
+                switch (parser.getString()) {
+                    case "id":
+                        parser.next();
+                        assignee.setId(parser.getLong());
+                        break;
+                    case "node_id":
+                        assignee.setNodeId(readString(parser));
+                        break;
+                    default:
+                        skipValue(parser);
+                }
+            }
+            event.getAssignees().add(assignee);
+        }
+    }
+
+    private static void readRepository(JsonParser parser, IssueEvent event) {
+        expect(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "id":
+                    parser.next();
+                    event.setRepositoryId(parser.getLong());
+                    break;
+                case "node_id":
+                    event.setRepositoryNodeId(readString(parser));
+                    break;
+                default:
+                    skipValue(parser);
+            }
+        }
+    }
+
+    private static String readString(JsonParser parser) {
+        JsonParser.Event value = parser.next();
+        if (value == JsonParser.Event.VALUE_NULL) {
+            return null;
+        }
+        if (value != JsonParser.Event.VALUE_STRING) {
+            throw new JsonParsingException("Expected a string but got " + value, parser.getLocation());
+        }
+        return parser.getString();
+    }
+
+    private static void skipValue(JsonParser parser) {
+        JsonParser.Event value = parser.next();
+        if (value == JsonParser.Event.START_OBJECT) {
+            parser.skipObject();
+        } else if (value == JsonParser.Event.START_ARRAY) {
+            parser.skipArray();
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonParser.Event expected) {
+        JsonParser.Event actual = parser.next();
+        if (actual != expected) {
+            throw new JsonParsingException("Expected " + expected + " but got " + actual, parser.getLocation());
+        }
+    }
+}
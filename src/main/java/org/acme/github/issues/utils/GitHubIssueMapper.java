@@ -1,47 +1,103 @@
 package org.acme.github.issues.utils;
 
+import java.io.Reader;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Set;
+import javax.enterprise.context.ApplicationScoped;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
+import org.acme.github.issues.model.IssueEvent;
 
-public class GitHubIssueMapper {
+/**
+ * Maps {@code issues} deliveries to SDM {@code GitHubIssue} data. The static methods are also used directly where
+ * the payload is known to be an issue, such as backfills.
+ */
+@ApplicationScoped
+public class GitHubIssueMapper implements WebhookEventMapper<IssueEvent> {
+    public static final String EVENT_TYPE = "issues";
+    public static final String DATA_TYPE = "github_issues";
 
-    public static String buildV3Key(JsonObject payload) {
-        return String.format("%s:%s",
-                payload.getJsonObject("installation").getJsonNumber("id"),
-                payload.getJsonObject("issue").getString("node_id"));
+    @Override
+    public Set<String> getEventTypes() {
+        return Collections.singleton(EVENT_TYPE);
     }
 
-    public static JsonObject mapV3Issue(JsonObject payload) {
-        JsonObject issue = payload.getJsonObject("issue");
-        JsonObject repository = payload.getJsonObject("repository");
-        JsonObject user = issue.getJsonObject("user");
+    @Override
+    public String getDataType() {
+        return DATA_TYPE;
+    }
+
+    @Override
+    public IssueEvent extract(Reader payload) {
+        return GitHubIssueExtractor.extract(payload);
+    }
+
+    @Override
+    public String extractKey(Reader payload) {
+        return buildV3Key(GitHubIssueExtractor.extractKey(payload));
+    }
+
+    @Override
+    public int getInstallationId(IssueEvent event) {
+        return event.getInstallationId();
+    }
+
+    @Override
+    public String getAction(IssueEvent event) {
+        return event.getAction();
+    }
+
+    @Override
+    public String buildKey(IssueEvent event) {
+        return buildV3Key(event);
+    }
+
+    @Override
+    public long getUpdatedAt(IssueEvent event) {
+        return getV3UpdatedAt(event);
+    }
+
+    @Override
+    public JsonObject map(IssueEvent event) {
+        return mapV3Issue(event);
+    }
+
+    public static String buildV3Key(IssueEvent event) {
+        return event.getInstallationId() + ":" + event.getIssueNodeId();
+    }
+
+    public static long getV3UpdatedAt(IssueEvent event) {
+        return Instant.parse(event.getUpdatedAt()).toEpochMilli();
+    }
 
+    public static JsonObject mapV3Issue(IssueEvent event) {
         JsonArrayBuilder assignees = Json.createArrayBuilder();
-        issue.getJsonArray("assignees").forEach(assignee -> {
+        event.getAssignees().forEach(assignee -> {
             assignees.add(Json.createObjectBuilder()
-                .add("id", assignee.asJsonObject().getJsonNumber("id"))
-                .add("nodeId", assignee.asJsonObject().getString("node_id"))
+                .add("id", assignee.getId())
+                .add("nodeId", assignee.getNodeId())
                 .build());
         });
 
         return Json.createObjectBuilder()
-                .add("id", issue.getJsonNumber("id"))
-                .add("nodeId", issue.getString("node_id"))
+                .add("id", event.getIssueId())
+                .add("nodeId", event.getIssueNodeId())
                 .add("repository", Json.createObjectBuilder()
-                    .add("id", repository.getJsonNumber("id"))
-                    .add("nodeId", repository.getString("node_id"))
+                    .add("id", event.getRepositoryId())
+                    .add("nodeId", event.getRepositoryNodeId())
                     .build())
                 .add("author", Json.createObjectBuilder()
-                    .add("login", user.getString("login"))
+                    .add("login", event.getAuthorLogin())
                     .build())
                 .add("assignees", assignees)
-                .add("body", issue.getString("body"))
-                .add("state", issue.getString("state").toUpperCase())
-                .add("number", issue.getJsonNumber("number"))
-                .add("title", issue.getString("title"))
-                .add("updatedAt", issue.getString("updated_at"))
-                .add("publishedAt", issue.getString("created_at"))
+                .add("body", event.getBody() == null ? "" : event.getBody())
+                .add("state", event.getState().toUpperCase())
+                .add("number", event.getNumber())
+                .add("title", event.getTitle())
+                .add("updatedAt", event.getUpdatedAt())
+                .add("publishedAt", event.getCreatedAt())
                 .build();
     }
 }
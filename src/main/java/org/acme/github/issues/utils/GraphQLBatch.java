@@ -0,0 +1,142 @@
+package org.acme.github.issues.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import org.acme.github.issues.model.MutationResult;
+
+/**
+ * Combines several add/update data mutations, of any SDM data types, into a single GraphQL document. Every mutation is
+ * given its own alias ({@code m0}, {@code m1}, ...) and its own variables, so the response can be split back into
+ * one {@link MutationResult} per mutation.
+ */
+public class GraphQLBatch {
+    private static final String OPERATION_NAME = "BatchData";
+
+    private final StringBuilder variableDefinitions = new StringBuilder();
+    private final StringBuilder selections = new StringBuilder();
+    private final JsonObjectBuilder variables = Json.createObjectBuilder();
+    private final List<String> fields = new ArrayList<>();
+
+    public int add(String dataType, String key, JsonObject data) {
+        int index = fields.size();
+        define("key" + index, "String!");
+        define("data" + index, "JsonObject!");
+        variables.add("key" + index, key).add("data" + index, data);
+        select(index, dataType, "add", "key: $key" + index + ", data: $data" + index);
+        return index;
+    }
+
+    public int update(String dataType, String id, JsonObject data) {
+        int index = fields.size();
+        define("id" + index, "ID!");
+        define("data" + index, "Json!");
+        variables.add("id" + index, id).add("data" + index, data);
+        select(index, dataType, "update", "id: $id" + index + ", data: $data" + index);
+        return index;
+    }
+
+    public int size() {
+        return fields.size();
+    }
+
+    public JsonObject toRequest() {
+        return toQuery().toRequest(getVariables());
+    }
+
+    public GraphQLQuery toQuery() {
+        return GraphQLQuery.of(OPERATION_NAME,
+                "mutation " + OPERATION_NAME + "(" + variableDefinitions + ") {\n" + selections + "}");
+    }
+
+    /**
+     * @return the variables of every mutation added so far; the batch takes no more mutations after this
+     */
+    public JsonObject getVariables() {
+        return variables.build();
+    }
+
+    /**
+     * Splits a batch response into one result per mutation, in the order they were added. Errors are routed to a
+     * mutation by the alias at the head of their {@code path}; errors without a path apply to every mutation.
+     */
+    public List<MutationResult> results(JsonObject response) {
+        List<JsonArrayBuilder> errors = new ArrayList<>();
+        fields.forEach(f -> errors.add(Json.createArrayBuilder()));
+
+        JsonArray responseErrors = response.getJsonArray("errors");
+        if (responseErrors != null) {
+            for (JsonValue error : responseErrors) {
+                int index = aliasIndex(error.asJsonObject().getJsonArray("path"));
+                if (index < 0) {
+                    errors.forEach(e -> e.add(error));
+                } else {
+                    errors.get(index).add(error);
+                }
+            }
+        }
+
+        JsonObject data = response.isNull("data") ? null : response.getJsonObject("data");
+        List<MutationResult> results = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            results.add(new MutationResult(resultId(data, i), errors.get(i).build()));
+        }
+        return results;
+    }
+
+    private void define(String name, String type) {
+        if (variableDefinitions.length() > 0) {
+            variableDefinitions.append(", ");
+        }
+        variableDefinitions.append('$').append(name).append(": ").append(type);
+    }
+
+    private void select(int index, String dataType, String field, String input) {
+        fields.add(field);
+        selections.append("    m").append(index).append(": data(type: \"").append(dataType).append("\") {\n")
+                .append("        ").append(field).append("(input: {").append(input).append("}) {\n")
+                .append("            data {\n")
+                .append("                id\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("    }\n");
+    }
+
+    private String resultId(JsonObject data, int index) {
+        String alias = "m" + index;
+        if (data == null || !data.containsKey(alias) || data.isNull(alias)) {
+            return null;
+        }
+        JsonObject field = data.getJsonObject(alias);
+        String name = fields.get(index);
+        if (!field.containsKey(name) || field.isNull(name)) {
+            return null;
+        }
+        JsonObject result = field.getJsonObject(name);
+        if (!result.containsKey("data") || result.isNull("data")) {
+            return null;
+        }
+        return result.getJsonObject("data").getString("id", null);
+    }
+
+    private int aliasIndex(JsonArray path) {
+        if (path == null || path.isEmpty() || path.get(0).getValueType() != JsonValue.ValueType.STRING) {
+            return -1;
+        }
+        String alias = path.getString(0);
+        if (!alias.startsWith("m")) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(alias.substring(1));
+            return index < fields.size() ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.acme.github.issues.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * A single-operation GraphQL document. Besides the plain {@code {operationName, query, variables}} body it can build
+ * persisted-query bodies, which identify the document by the SHA-256 of its text and leave the text out.
+ */
+public class GraphQLQuery {
+    private static final Pattern OPERATION = Pattern.compile("^\\s*(query|mutation)\\s+(\\w+)\\s*[({]");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String operationName;
+    private final String text;
+    private volatile String sha256;
+
+    private GraphQLQuery(String operationName, String text) {
+        this.operationName = operationName;
+        this.text = text;
+    }
+
+    /**
+     * Wraps a document that is known to be well-formed, such as one generated by {@link GraphQLBatch}.
+     */
+    public static GraphQLQuery of(String operationName, String text) {
+        return new GraphQLQuery(operationName, text);
+    }
+
+    /**
+     * @throws IllegalArgumentException unless the text holds one named query or mutation with balanced braces
+     */
+    public static GraphQLQuery parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty GraphQL document");
+        }
+        Matcher matcher = OPERATION.matcher(text);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("GraphQL document does not start with a named query or mutation");
+        }
+
+        int depth = 0;
+        int operations = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                if (depth == 0) {
+                    operations++;
+                }
+                depth++;
+            } else if (c == '}' && --depth < 0) {
+                break;
+            }
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException("Unbalanced braces in GraphQL operation " + matcher.group(2));
+        }
+        if (operations != 1) {
+            throw new IllegalArgumentException("Expected a single operation, found " + operations);
+        }
+        return new GraphQLQuery(matcher.group(2), text);
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return lowercase hex SHA-256 of the document text, as used by persisted-query ids
+     */
+    public String getSha256() {
+        String hash = sha256;
+        if (hash == null) {
+            hash = sha256(text);
+            sha256 = hash;
+        }
+        return hash;
+    }
+
+    public JsonObject toRequest(JsonObject variables) {
+        return body(variables).add("query", text).build();
+    }
+
+    /**
+     * @param withText whether to send the text along with its id, which registers the document with a server that
+     * does not know it yet
+     */
+    public JsonObject toPersistedRequest(JsonObject variables, boolean withText) {
+        JsonObjectBuilder body = body(variables)
+                .add("extensions", Json.createObjectBuilder()
+                        .add("persistedQuery", Json.createObjectBuilder()
+                                .add("version", 1)
+                                .add("sha256Hash", getSha256())));
+        if (withText) {
+            body.add("query", text);
+        }
+        return body.build();
+    }
+
+    private JsonObjectBuilder body(JsonObject variables) {
+        return Json.createObjectBuilder()
+                .add("operationName", operationName)
+                .add("variables", variables);
+    }
+
+    static String sha256(String text) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,74 @@
+package org.acme.github.issues.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Stable 64 bit fingerprint of a JSON value, used to tell whether mapped issue data changed since it was last sent.
+ * Object members are hashed in key order, so the fingerprint does not depend on how the object was built, and every
+ * value is length-prefixed or tagged so different structures cannot produce the same input to the digest.
+ */
+public class JsonHash {
+
+    public static long hash(JsonValue value) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, value);
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    private static void update(MessageDigest digest, JsonValue value) {
+        switch (value.getValueType()) {
+            case OBJECT:
+                digest.update((byte) '{');
+                for (Map.Entry<String, JsonValue> member : new TreeMap<>((JsonObject) value).entrySet()) {
+                    update(digest, member.getKey());
+                    update(digest, member.getValue());
+                }
+                digest.update((byte) '}');
+                break;
+            case ARRAY:
+                digest.update((byte) '[');
+                for (JsonValue element : (JsonArray) value) {
+                    update(digest, element);
+                }
+                digest.update((byte) ']');
+                break;
+            case STRING:
+                digest.update((byte) 's');
+                update(digest, ((JsonString) value).getString());
+                break;
+            case NUMBER:
+                digest.update((byte) 'n');
+                update(digest, ((JsonNumber) value).bigDecimalValue().stripTrailingZeros().toPlainString());
+                break;
+            case TRUE:
+                digest.update((byte) 't');
+                break;
+            case FALSE:
+                digest.update((byte) 'f');
+                break;
+            default:
+                digest.update((byte) 'z');
+        }
+    }
+
+    private static void update(MessageDigest digest, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+}
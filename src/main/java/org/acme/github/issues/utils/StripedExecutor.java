@@ -0,0 +1,64 @@
+package org.acme.github.issues.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs asynchronous tasks on serial lanes picked by hashing a key. A task only starts once the future of the task
+ * submitted before it on the same lane has completed, so tasks sharing a key run one at a time and in submission
+ * order, while tasks on different lanes run concurrently on the given executor. Each lane holds at most
+ * {@code capacity} tasks, counting the running one.
+ */
+public class StripedExecutor {
+    private final Lane[] lanes;
+    private final int capacity;
+    private final Executor executor;
+
+    public StripedExecutor(int lanes, int capacity, Executor executor) {
+        if (lanes < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Lanes and capacity must be positive");
+        }
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane();
+        }
+        this.capacity = capacity;
+        this.executor = executor;
+    }
+
+    /**
+     * @return a future completing with the one returned by the task, once it has run.
+     * @throws RejectedExecutionException when the key's lane is full.
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> task) {
+        Lane lane = lanes[laneOf(key)];
+        CompletableFuture<T> result;
+        synchronized (lane) {
+            if (lane.queued >= capacity) {
+                throw new RejectedExecutionException("Lane for key " + key + " is full");
+            }
+            lane.queued++;
+            result = lane.tail.thenComposeAsync(previous -> task.get(), executor);
+            // a failed task must not hold up the ones behind it
+            lane.tail = result.handle((v, e) -> null);
+        }
+        result.whenComplete((v, e) -> {
+            synchronized (lane) {
+                lane.queued--;
+            }
+        });
+        return result;
+    }
+
+    int laneOf(String key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), lanes.length);
+    }
+
+    private static class Lane {
+        private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+        private int queued;
+    }
+}
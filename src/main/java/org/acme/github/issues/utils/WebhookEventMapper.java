@@ -0,0 +1,72 @@
+package org.acme.github.issues.utils;
+
+import java.io.Reader;
+import java.util.Set;
+import javax.json.JsonObject;
+
+/**
+ * Turns the deliveries of some GitHub webhook event types into the data sent to SDM. Implementations are CDI beans
+ * and are picked up by the {@code WebhookMappers} registry; a delivery whose {@code X-GitHub-Event} no mapper lists
+ * is dropped before its body is read.
+ *
+ * @param <E> what the mapper extracts from a payload, e.g. an {@code IssueEvent}.
+ */
+public interface WebhookEventMapper<E> {
+
+    /**
+     * @return the {@code X-GitHub-Event} values this mapper handles. No two mappers may share one.
+     */
+    Set<String> getEventTypes();
+
+    /**
+     * @return the SDM data type the mapped entities are written as, e.g. {@code github_issues}.
+     */
+    String getDataType();
+
+    /**
+     * @param action the payload's {@code action}, or {@code null} for events that have none.
+     * @return whether deliveries with this action should be applied; others are dropped once parsed.
+     */
+    default boolean handlesAction(String action) {
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload lacks what the mapper needs.
+     */
+    E extract(Reader payload);
+
+    /**
+     * Like {@code buildKey(extract(payload))}, for callers that need nothing but the key, such as the request thread
+     * queueing a delivery. Mappers should override it to read no more of the payload than the key takes.
+     *
+     * @throws IllegalArgumentException if the payload lacks the key.
+     */
+    default String extractKey(Reader payload) {
+        return buildKey(extract(payload));
+    }
+
+    /**
+     * @return the id of the app installation the event was delivered for, which decides the SDM account.
+     */
+    int getInstallationId(E event);
+
+    /**
+     * @return the payload's {@code action}, or {@code null} for events that have none.
+     */
+    default String getAction(E event) {
+        return null;
+    }
+
+    /**
+     * @return the key identifying the entity in SDM and the local stores, stable across deliveries.
+     */
+    String buildKey(E event);
+
+    /**
+     * @return when the entity was last changed, in epoch millis, used to tell newer snapshots from older ones.
+     */
+    long getUpdatedAt(E event);
+
+    JsonObject map(E event);
+}
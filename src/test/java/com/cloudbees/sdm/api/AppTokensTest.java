@@ -0,0 +1,249 @@
+package com.cloudbees.sdm.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.lang.JoseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AppTokensTest {
+    private static final int CALLERS = 8;
+
+    private StubHttpClient httpClient;
+    private AppTokens appTokens;
+    private ExecutorService callers;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        String privateKey;
+        try (InputStream is = AppTokensTest.class
+                .getResourceAsStream("/org/acme/github/issues/sdm-app-private-key.pem")) {
+            privateKey = IOUtils.toString(is, StandardCharsets.US_ASCII);
+        }
+        httpClient = new StubHttpClient(PrivateKeyUtils.readPrivateKey(privateKey, null));
+        appTokens = new AppTokens("http://localhost", privateKey, "24", httpClient);
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    public void teardown() {
+        callers.shutdownNow();
+        appTokens.close();
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneFetch() throws Exception {
+        httpClient.hold();
+        List<Future<String>> tokens = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            tokens.add(callers.submit(() -> appTokens.getAccountAccessToken("acme")));
+        }
+        await(() -> appTokens.getCacheMisses() == CALLERS);
+        httpClient.release();
+
+        String token = tokens.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<String> other : tokens) {
+            assertEquals(token, other.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, httpClient.fetches.get());
+
+        assertEquals(token, appTokens.getAccountAccessToken("acme"));
+        assertEquals(1, httpClient.fetches.get());
+        assertEquals(1, appTokens.getCacheHits());
+        assertEquals(CALLERS, appTokens.getCacheMisses());
+    }
+
+    @Test
+    public void testFailedFetchFailsEveryWaiterAndIsRetried() throws Exception {
+        httpClient.status = 503;
+        httpClient.hold();
+        List<Future<String>> tokens = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            tokens.add(callers.submit(() -> appTokens.getAccountAccessToken("acme")));
+        }
+        await(() -> appTokens.getCacheMisses() == CALLERS);
+        httpClient.release();
+
+        for (Future<String> token : tokens) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> token.get(5, TimeUnit.SECONDS));
+            assertEquals(503, ((AccessTokenException) e.getCause()).getStatus());
+        }
+        assertEquals(1, httpClient.fetches.get());
+
+        httpClient.status = 200;
+        appTokens.getAccountAccessToken("acme");
+        assertEquals(2, httpClient.fetches.get());
+    }
+
+    @Test
+    public void testUnusedTokenIsDroppedAtRefresh() throws Exception {
+        // refreshed a minute ahead of expiry, so about a second from now
+        httpClient.validityMillis = TimeUnit.SECONDS.toMillis(61);
+        appTokens.getAccountAccessToken("acme");
+
+        Thread.sleep(2000);
+        assertEquals(1, httpClient.fetches.get());
+        assertEquals(0, appTokens.getRefreshes());
+
+        appTokens.getAccountAccessToken("acme");
+        assertEquals(2, httpClient.fetches.get());
+        assertEquals(2, appTokens.getCacheMisses());
+    }
+
+    @Test
+    public void testUsedTokenIsRefreshedAhead() throws Exception {
+        httpClient.validityMillis = TimeUnit.SECONDS.toMillis(61);
+        String first = appTokens.getAccountAccessToken("acme");
+        assertEquals(first, appTokens.getAccountAccessToken("acme"));
+
+        await(() -> appTokens.getRefreshes() == 1);
+        String refreshed = appTokens.getAccountAccessToken("acme");
+        assertNotEquals(first, refreshed);
+        assertEquals(2, httpClient.fetches.get());
+        assertEquals(1, appTokens.getCacheMisses());
+        assertEquals(2, appTokens.getCacheHits());
+        assertEquals(0, appTokens.getRefreshFailures());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Answers account token requests with a freshly signed token, or with {@link #status} if that is not a success.
+     */
+    private static class StubHttpClient implements HttpClient {
+        private final PrivateKey signingKey;
+        private final AtomicInteger fetches = new AtomicInteger();
+        private volatile int status = 200;
+        private volatile long validityMillis = TimeUnit.MINUTES.toMillis(10);
+        private volatile CountDownLatch held = new CountDownLatch(0);
+
+        private StubHttpClient(PrivateKey signingKey) {
+            this.signingKey = signingKey;
+        }
+
+        private void hold() {
+            held = new CountDownLatch(1);
+        }
+
+        private void release() {
+            held.countDown();
+        }
+
+        @Override
+        public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> responseHandler)
+                throws IOException {
+            fetches.incrementAndGet();
+            try {
+                held.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+            response.setEntity(new StringEntity(status == 200 ? token() : "unavailable", StandardCharsets.UTF_8));
+            return responseHandler.handleResponse(response);
+        }
+
+        private String token() {
+            JwtClaims claims = new JwtClaims();
+            claims.setGeneratedJwtId();
+            claims.setExpirationTime(NumericDate.fromMilliseconds(System.currentTimeMillis() + validityMillis));
+            JsonWebSignature jws = new JsonWebSignature();
+            jws.setPayload(claims.toJson());
+            jws.setKey(signingKey);
+            jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+            try {
+                return jws.getCompactSerialization();
+            } catch (JoseException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> responseHandler,
+                             HttpContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T execute(HttpHost target, HttpRequest request, ResponseHandler<? extends T> responseHandler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T execute(HttpHost target, HttpRequest request, ResponseHandler<? extends T> responseHandler,
+                             HttpContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HttpResponse execute(HttpUriRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HttpResponse execute(HttpUriRequest request, HttpContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HttpResponse execute(HttpHost target, HttpRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HttpResponse execute(HttpHost target, HttpRequest request, HttpContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.params.HttpParams getParams() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
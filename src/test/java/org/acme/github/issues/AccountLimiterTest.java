@@ -0,0 +1,122 @@
+package org.acme.github.issues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import org.acme.github.issues.AccountLimiter.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccountLimiterTest {
+    private AccountLimiter limiter;
+    private long now;
+
+    @BeforeEach
+    public void setup() {
+        limiter = new AccountLimiter();
+        limiter.initialLimit = 4;
+        limiter.minLimit = 1;
+        limiter.maxLimit = 8;
+        limiter.backoffRatio = 0.5;
+        limiter.latencyTolerance = 2.0;
+        limiter.deferMillis = 100;
+        limiter.failureThreshold = 3;
+        limiter.openMillis = 1000;
+        limiter.clock = () -> now;
+    }
+
+    @Test
+    public void testLimitsConcurrencyPerAccount() {
+        List<AccountLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.acquire("slow"));
+        }
+
+        AccountThrottledException e = assertThrows(AccountThrottledException.class, () -> limiter.acquire("slow"));
+        assertEquals(100, e.getRetryAfterMillis());
+        limiter.acquire("healthy").success();
+
+        permits.remove(0).success();
+        permits.add(limiter.acquire("slow"));
+    }
+
+    @Test
+    public void testAdditiveIncreaseAndLatencyBackoff() {
+        for (int round = 0; round < 20; round++) {
+            List<AccountLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit("acme"); i++) {
+                permits.add(limiter.acquire("acme"));
+            }
+            now += TimeUnit.MILLISECONDS.toNanos(10);
+            permits.forEach(AccountLimiter.Permit::success);
+        }
+        assertEquals(8, limiter.getLimit("acme"));
+
+        AccountLimiter.Permit slow = limiter.acquire("acme");
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        slow.success();
+        assertEquals(4, limiter.getLimit("acme"));
+    }
+
+    @Test
+    public void testBreakerOpensAndProbes() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("acme").failure();
+        }
+        assertEquals(State.OPEN, limiter.getState("acme"));
+        AccountThrottledException e = assertThrows(AccountThrottledException.class, () -> limiter.acquire("acme"));
+        assertEquals(1000, e.getRetryAfterMillis());
+
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        AccountLimiter.Permit probe = limiter.acquire("acme");
+        assertEquals(State.HALF_OPEN, limiter.getState("acme"));
+        assertThrows(AccountThrottledException.class, () -> limiter.acquire("acme"));
+
+        probe.failure();
+        assertEquals(State.OPEN, limiter.getState("acme"));
+
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        limiter.acquire("acme").success();
+        assertEquals(State.CLOSED, limiter.getState("acme"));
+        // traffic comes back one step at a time from the minimum
+        assertEquals(2, limiter.getLimit("acme"));
+    }
+
+    @Test
+    public void testCallHoldsPermitUntilResponse() throws Exception {
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            limiter.call("acme", () -> response);
+            calls.add(response);
+        }
+
+        CompletableFuture<String> throttled = limiter.call("acme", () -> CompletableFuture.completedFuture("sent"));
+        ExecutionException e = assertThrows(ExecutionException.class, throttled::get);
+        assertTrue(e.getCause() instanceof AccountThrottledException);
+
+        now += TimeUnit.MILLISECONDS.toNanos(10);
+        calls.forEach(c -> c.complete("done"));
+        assertEquals("sent", limiter.call("acme", () -> CompletableFuture.completedFuture("sent")).get());
+    }
+
+    @Test
+    public void testRateLimitResponseDoesNotCountAgainstAccount() {
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            limiter.call("acme", () -> response);
+            response.completeExceptionally(new WebApplicationException(Response.status(429).build()));
+        }
+
+        assertEquals(State.CLOSED, limiter.getState("acme"));
+        assertEquals(4, limiter.getLimit("acme"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.acme.github.issues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import org.acme.github.issues.AccountScheduler.Priority;
+import org.apache.http.client.utils.DateUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccountSchedulerTest {
+    private AccountScheduler scheduler;
+
+    @BeforeEach
+    public void setup() {
+        scheduler = new AccountScheduler();
+        scheduler.initialRate = 20;
+        scheduler.minRate = 0.1;
+        scheduler.maxRate = 100;
+        scheduler.burst = 1;
+        scheduler.backoffRatio = 0.5;
+        scheduler.retryMillis = 100;
+        scheduler.maxWaitMillis = 10000;
+        scheduler.queueCapacity = 10;
+        scheduler.threads = 1;
+        scheduler.init();
+    }
+
+    @AfterEach
+    public void teardown() {
+        scheduler.onStop(null);
+    }
+
+    @Test
+    public void testLiveCallsGoFirst() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<String> first = scheduler.schedule("acme", Priority.BACKGROUND, () -> call(order, "first"));
+        CompletableFuture<String> background =
+                scheduler.schedule("acme", Priority.BACKGROUND, () -> call(order, "background"));
+        CompletableFuture<String> live = scheduler.schedule("acme", Priority.LIVE, () -> call(order, "live"));
+
+        assertEquals("background", background.get(1, TimeUnit.SECONDS));
+        assertEquals("live", live.get(1, TimeUnit.SECONDS));
+        assertTrue(first.isDone());
+        assertEquals(Arrays.asList("first", "live", "background"), order);
+    }
+
+    @Test
+    public void testRetriesAfterRetryAfter() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        CompletableFuture<String> result = scheduler.schedule("acme", Priority.LIVE, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                return failed(new WebApplicationException(Response.status(429).header("Retry-After", "1").build()));
+            }
+            return CompletableFuture.completedFuture("done");
+        });
+
+        assertEquals("done", result.get(3, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+        assertEquals(10, scheduler.getRate("acme"), 0.5);
+    }
+
+    @Test
+    public void testOtherFailuresAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        WebApplicationException unavailable = new WebApplicationException(503);
+        CompletableFuture<String> result = scheduler.schedule("acme", Priority.LIVE, () -> {
+            attempts.incrementAndGet();
+            return failed(unavailable);
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertSame(unavailable, e.getCause());
+        assertEquals(1, attempts.get());
+        assertEquals(20, scheduler.getRate("acme"), 0.001);
+    }
+
+    @Test
+    public void testFullQueueDefers() throws Exception {
+        scheduler.queueCapacity = 1;
+        scheduler.initialRate = 1;
+        scheduler.schedule("acme", Priority.BACKGROUND, () -> CompletableFuture.completedFuture("sent"));
+        scheduler.schedule("acme", Priority.BACKGROUND, () -> CompletableFuture.completedFuture("queued"));
+
+        CompletableFuture<String> rejected =
+                scheduler.schedule("acme", Priority.BACKGROUND, () -> CompletableFuture.completedFuture("rejected"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RetryLaterException);
+        assertEquals("live",
+                scheduler.schedule("acme", Priority.LIVE, () -> CompletableFuture.completedFuture("live"))
+                        .get(3, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRateFollowsReportedWindow() {
+        scheduler.observe("acme", 300, TimeUnit.MINUTES.toMillis(1));
+        assertEquals(5, scheduler.getRate("acme"), 0.001);
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        long now = System.currentTimeMillis();
+        assertEquals(120000, AccountScheduler.parseRetryAfter(" 120 ", now));
+        assertEquals(30000, AccountScheduler.parseRetryAfter(DateUtils.formatDate(new Date(now + 30000)), now), 1000);
+        assertEquals(-1, AccountScheduler.parseRetryAfter("soon", now));
+        assertEquals(-1, AccountScheduler.parseRetryAfter(null, now));
+    }
+
+    private static CompletableFuture<String> call(List<String> order, String name) {
+        order.add(name);
+        return CompletableFuture.completedFuture(name);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(e);
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package org.acme.github.issues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.acme.github.issues.client.SDMApiClient;
+import org.acme.github.issues.model.SDMAuth;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GraphQLQueriesTest {
+
+    @Test
+    public void testBundledQueriesLoad() {
+        GraphQLQueries queries = new GraphQLQueries();
+        queries.init();
+
+        assertEquals("getConfig", queries.get(GraphQLQueries.CONFIG_QUERY).getOperationName());
+        assertEquals("getGithubIssue", queries.get(GraphQLQueries.DATA_QUERY).getOperationName());
+        assertEquals("addData", queries.get(GraphQLQueries.CREATE_DATA_MUTATION).getOperationName());
+        assertEquals("updateData", queries.get(GraphQLQueries.UPDATE_DATA_MUTATION).getOperationName());
+        assertThrows(IllegalArgumentException.class, () -> queries.get("missing.graphql"));
+    }
+
+    @Test
+    public void testPersistedQueryIsRegisteredOnMiss() {
+        RecordingClient client = new RecordingClient("PERSISTED_QUERY_NOT_FOUND");
+        GraphQLQueries queries = new GraphQLQueries();
+        queries.init();
+        queries.persistedQueries = true;
+        queries.sdmApiClient = client;
+        JsonObject variables = Json.createObjectBuilder().add("key", "1:a").build();
+
+        queries.executeAsync("acme", new SDMAuth("t"), queries.get(GraphQLQueries.DATA_QUERY), variables).join();
+        queries.executeAsync("acme", new SDMAuth("t"), queries.get(GraphQLQueries.DATA_QUERY), variables).join();
+
+        assertEquals(3, client.requests.size());
+        assertFalse(client.requests.get(0).containsKey("query"));
+        assertTrue(client.requests.get(1).containsKey("query"));
+        assertTrue(client.requests.get(1).containsKey("extensions"));
+        assertFalse(client.requests.get(2).containsKey("query"));
+    }
+
+    @Test
+    public void testFullTextIsSentWhenPersistedQueriesAreNotSupported() {
+        RecordingClient client = new RecordingClient("PERSISTED_QUERY_NOT_SUPPORTED");
+        GraphQLQueries queries = new GraphQLQueries();
+        queries.init();
+        queries.persistedQueries = true;
+        queries.sdmApiClient = client;
+        JsonObject variables = Json.createObjectBuilder().add("key", "1:a").build();
+
+        queries.execute("acme", new SDMAuth("t"), queries.get(GraphQLQueries.DATA_QUERY), variables);
+        queries.execute("acme", new SDMAuth("t"), queries.get(GraphQLQueries.DATA_QUERY), variables);
+
+        assertEquals(3, client.requests.size());
+        assertFalse(client.requests.get(1).containsKey("extensions"));
+        assertTrue(client.requests.get(2).containsKey("query"));
+        assertFalse(client.requests.get(2).containsKey("extensions"));
+    }
+
+    /**
+     * Answers the first request for an id alone with {@code missCode}, everything else with an empty result.
+     */
+    private static class RecordingClient implements SDMApiClient {
+        private final String missCode;
+        private final List<JsonObject> requests = new ArrayList<>();
+        private boolean missed;
+
+        private RecordingClient(String missCode) {
+            this.missCode = missCode;
+        }
+
+        @Override
+        public JsonObject executeQuery(String accountName, SDMAuth sdmAuth, JsonObject body) {
+            requests.add(body);
+            if (!missed && !body.containsKey("query")) {
+                missed = true;
+                return Json.createObjectBuilder()
+                        .add("errors", Json.createArrayBuilder().add(Json.createObjectBuilder()
+                                .add("message", "miss")
+                                .add("extensions", Json.createObjectBuilder().add("code", missCode))))
+                        .build();
+            }
+            return Json.createObjectBuilder()
+                    .add("data", Json.createObjectBuilder())
+                    .add("errors", Json.createArrayBuilder())
+                    .build();
+        }
+
+        @Override
+        public CompletionStage<JsonObject> executeQueryAsync(String accountName, SDMAuth sdmAuth, JsonObject body) {
+            return CompletableFuture.completedFuture(executeQuery(accountName, sdmAuth, body));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.acme.github.issues;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.WebApplicationException;
+import org.acme.github.issues.client.SDMApiClient;
+import org.acme.github.issues.model.SDMAuth;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HttpTransportTest {
+    private HttpServer server;
+    private AccountScheduler scheduler;
+    private HttpTransport transport;
+    private volatile String authorization;
+    private volatile String threadName;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            String request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = IOUtils.toString(in, StandardCharsets.UTF_8);
+            }
+            if (exchange.getRequestURI().getPath().startsWith("/a/busy/")) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                exchange.close();
+                return;
+            }
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(request.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] response = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().set(RateLimitFilter.REMAINING, "300");
+            exchange.getResponseHeaders().set(RateLimitFilter.RESET, "60");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+
+        scheduler = new AccountScheduler();
+        scheduler.initialRate = 20;
+        scheduler.minRate = 1;
+        scheduler.maxRate = 100;
+        scheduler.burst = 1;
+        scheduler.backoffRatio = 0.5;
+        scheduler.retryMillis = 1000;
+        scheduler.maxWaitMillis = 10000;
+        scheduler.queueCapacity = 10;
+        scheduler.threads = 1;
+        scheduler.init();
+
+        transport = new HttpTransport();
+        transport.sdmGraphQLUrl = "http://localhost:" + server.getAddress().getPort();
+        transport.maxTotal = 10;
+        transport.maxPerRoute = 10;
+        transport.connectTimeoutMillis = 1000;
+        transport.readTimeoutMillis = 5000;
+        transport.keepAliveMillis = 60000;
+        transport.async = true;
+        transport.ioThreads = 1;
+        transport.requestCompression = "none";
+        transport.requestCompressionMinBytes = 1024;
+        transport.accountScheduler = scheduler;
+        transport.init();
+    }
+
+    @AfterEach
+    public void teardown() {
+        transport.close();
+        scheduler.onStop(null);
+        server.stop(0);
+    }
+
+    @Test
+    public void testQueryRunsOnNonBlockingClient() throws Exception {
+        assertNotNull(transport.getAsyncHttpClient());
+        JsonObject body = Json.createObjectBuilder().add("query", "{ a }").build();
+
+        JsonObject response = transport.sdmApiClient().executeQueryAsync("acme", new SDMAuth("token"), body)
+                .thenApply(r -> {
+                    threadName = Thread.currentThread().getName();
+                    return r;
+                })
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(body, response);
+        assertEquals("Bearer token", authorization);
+        // completed by the I/O reactor, not by a thread held for the request
+        assertFalse(threadName.startsWith("sdm-http-"), threadName);
+        assertEquals(5, scheduler.getRate("acme"), 0.001);
+    }
+
+    @Test
+    public void testErrorStatusFailsTheFuture() {
+        SDMApiClient client = transport.sdmApiClient();
+        JsonObject body = Json.createObjectBuilder().add("query", "{ a }").build();
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> client.executeQueryAsync("busy", new SDMAuth("token"), body).toCompletableFuture().join());
+        WebApplicationException cause = (WebApplicationException) e.getCause();
+        assertEquals(429, cause.getResponse().getStatus());
+        assertEquals("1", cause.getResponse().getHeaderString("Retry-After"));
+    }
+}
@@ -0,0 +1,61 @@
+package org.acme.github.issues;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IssueCoalescerTest {
+
+    private IssueCoalescer coalescer;
+
+    @BeforeEach
+    public void setup() {
+        coalescer = new IssueCoalescer();
+        coalescer.windowMillis = 50;
+        coalescer.historySize = 100;
+        coalescer.init();
+    }
+
+    @Test
+    public void testLoneEventIsAdmittedImmediately() {
+        assertTrue(coalescer.admit("1:a", 1000).getNow(false));
+        assertTrue(coalescer.admit("1:b", 1000).getNow(false));
+    }
+
+    @Test
+    public void testNewestSnapshotInWindowWins() throws Exception {
+        CompletableFuture<Boolean> first = coalescer.admit("1:a", 1000);
+        CompletableFuture<Boolean> second = coalescer.admit("1:a", 2000);
+        CompletableFuture<Boolean> third = coalescer.admit("1:a", 3000);
+
+        assertTrue(first.getNow(false));
+        assertFalse(second.get(1, TimeUnit.SECONDS));
+        assertTrue(third.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOutOfOrderSnapshotIsDropped() throws Exception {
+        CompletableFuture<Boolean> newer = coalescer.admit("1:a", 2000);
+        CompletableFuture<Boolean> older = coalescer.admit("1:a", 1000);
+
+        assertTrue(newer.getNow(false));
+        assertFalse(older.getNow(true));
+
+        CompletableFuture<Boolean> waiting = coalescer.admit("1:a", 3000);
+        assertFalse(coalescer.admit("1:a", 2500).getNow(true));
+        assertTrue(waiting.get(1, TimeUnit.SECONDS));
+        assertFalse(coalescer.admit("1:a", 2000).getNow(true));
+    }
+
+    @Test
+    public void testDisabledWindowAdmitsImmediately() {
+        coalescer.windowMillis = 0;
+
+        assertTrue(coalescer.admit("1:a", 1000).getNow(false));
+        assertFalse(coalescer.admit("1:a", 500).getNow(true));
+    }
+}
@@ -0,0 +1,70 @@
+package org.acme.github.issues;
+
+import java.util.concurrent.TimeUnit;
+import org.acme.github.issues.PipelineMetrics.Outcome;
+import org.acme.github.issues.PipelineMetrics.Stage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void testHistogramExposition() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        long now = System.nanoTime();
+        metrics.record("acme", Stage.CREATE, Outcome.CREATED, now - TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.record("acme", Stage.CREATE, Outcome.CREATED, now - TimeUnit.MILLISECONDS.toNanos(40));
+        metrics.record("acme", Stage.CREATE, Outcome.CREATED, now - TimeUnit.SECONDS.toNanos(60));
+
+        String out = scrape(metrics);
+
+        String labels = "account=\"acme\",stage=\"create\",outcome=\"created\"";
+        assertTrue(out.contains("webhook_stage_seconds_bucket{" + labels + ",le=\"0.0025\"} 0\n"), out);
+        assertTrue(out.contains("webhook_stage_seconds_bucket{" + labels + ",le=\"0.005\"} 1\n"), out);
+        assertTrue(out.contains("webhook_stage_seconds_bucket{" + labels + ",le=\"0.05\"} 2\n"), out);
+        assertTrue(out.contains("webhook_stage_seconds_bucket{" + labels + ",le=\"30.0\"} 2\n"), out);
+        assertTrue(out.contains("webhook_stage_seconds_bucket{" + labels + ",le=\"+Inf\"} 3\n"), out);
+        assertTrue(out.contains("webhook_stage_seconds_count{" + labels + "} 3\n"), out);
+        assertFalse(out.contains("outcome=\"failed\",le="), out);
+    }
+
+    @Test
+    public void testCounters() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.graphQLErrors("acme", 2);
+        metrics.graphQLErrors("acme", 1);
+        metrics.graphQLErrors("other", 0);
+        metrics.record(null, Stage.DELIVERY, Outcome.DROPPED, System.nanoTime());
+        metrics.configReloaded(true);
+        metrics.configReloaded(false);
+        metrics.configReloaded(true);
+
+        String out = scrape(metrics);
+
+        assertTrue(out.contains("sdm_graphql_errors_total{account=\"acme\"} 3\n"), out);
+        assertTrue(out.contains("account=\"unknown\",stage=\"delivery\",outcome=\"dropped\""), out);
+        assertTrue(out.contains("config_reloads_total{outcome=\"ok\"} 2\n"), out);
+        assertTrue(out.contains("config_reloads_total{outcome=\"failed\"} 1\n"), out);
+    }
+
+    @Test
+    public void testFirstFastDelivery() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.fastDeliveryMillis = 100;
+        long now = System.nanoTime();
+        metrics.record("acme", Stage.DELIVERY, Outcome.CREATED, now - TimeUnit.SECONDS.toNanos(2));
+        metrics.record("acme", Stage.DELIVERY, Outcome.DROPPED, now);
+        assertFalse(scrape(metrics).contains("startup_first_fast_delivery_seconds "));
+
+        metrics.record("acme", Stage.DELIVERY, Outcome.UPDATED, now);
+        assertTrue(scrape(metrics).contains("# TYPE startup_first_fast_delivery_seconds gauge\n"));
+    }
+
+    private static String scrape(PipelineMetrics metrics) {
+        StringBuilder out = new StringBuilder();
+        metrics.write(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package org.acme.github.issues;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import javax.json.JsonObject;
+import org.acme.github.issues.utils.GitHubIssueMapper;
+import org.acme.github.issues.utils.WebhookEventMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WebhookMappersTest {
+
+    @Test
+    public void testAcceptsMappedAndInstallationEventsOnly() {
+        GitHubIssueMapper issues = new GitHubIssueMapper();
+        WebhookMappers mappers = new WebhookMappers();
+        mappers.register(Collections.singletonList(issues));
+
+        assertSame(issues, mappers.get("issues").get());
+        assertTrue(mappers.accepts("issues"));
+        assertTrue(mappers.accepts("installation"));
+        assertTrue(mappers.accepts("installation_repositories"));
+        assertFalse(mappers.accepts("push"));
+        assertFalse(mappers.accepts("check_run"));
+        assertFalse(mappers.get("push").isPresent());
+    }
+
+    @Test
+    public void testEventTypeClaimedTwiceIsRejected() {
+        WebhookMappers mappers = new WebhookMappers();
+
+        assertThrows(IllegalStateException.class,
+                () -> mappers.register(Arrays.asList(new GitHubIssueMapper(), new CommentMapper("issues"))));
+    }
+
+    @Test
+    public void testNewMapperPlugsIn() {
+        WebhookMappers mappers = new WebhookMappers();
+        mappers.register(Arrays.asList(new GitHubIssueMapper(), new CommentMapper("issue_comment")));
+
+        assertTrue(mappers.accepts("issue_comment"));
+        assertTrue(mappers.get("issue_comment").get().handlesAction("created"));
+        assertFalse(mappers.get("issue_comment").get().handlesAction("deleted"));
+    }
+
+    private static class CommentMapper implements WebhookEventMapper<JsonObject> {
+        private final String eventType;
+
+        private CommentMapper(String eventType) {
+            this.eventType = eventType;
+        }
+
+        @Override
+        public Set<String> getEventTypes() {
+            return Collections.singleton(eventType);
+        }
+
+        @Override
+        public String getDataType() {
+            return "github_issue_comments";
+        }
+
+        @Override
+        public boolean handlesAction(String action) {
+            return !"deleted".equals(action);
+        }
+
+        @Override
+        public JsonObject extract(Reader payload) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getInstallationId(JsonObject event) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String buildKey(JsonObject event) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getUpdatedAt(JsonObject event) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public JsonObject map(JsonObject event) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.acme.github.issues;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.acme.github.issues.model.WebhookDelivery;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WebhookQueueTest {
+    private WebhookQueue queue;
+    private FlakyPartitions partitions;
+    private CountDownLatch processed;
+
+    @BeforeEach
+    public void setup() {
+        Warmup warmup = new Warmup();
+        warmup.enabled = false;
+        warmup.onStart(null);
+
+        partitions = new FlakyPartitions();
+        processed = new CountDownLatch(1);
+
+        queue = new WebhookQueue();
+        queue.workers = 1;
+        queue.batchSize = 2;
+        queue.pollMillis = 10;
+        queue.maxInFlight = 4;
+        queue.maxAttempts = 5;
+        queue.retryMillis = 1000;
+        // never reached: acknowledging fails and is logged, which is all these tests need
+        queue.jdbi = Jdbi.create("jdbc:postgresql://localhost:1/none").installPlugin(new SqlObjectPlugin());
+        queue.queuePartitions = partitions;
+        queue.webhookProcessor = new WebhookProcessor() {
+            @Override
+            public CompletableFuture<Void> process(String eventType, String rawPayload) {
+                processed.countDown();
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        queue.warmup = warmup;
+        queue.init();
+    }
+
+    @AfterEach
+    public void teardown() {
+        queue.onStop(null);
+    }
+
+    @Test
+    public void testFailedClaimsGiveTheirRoomBack() throws Exception {
+        // more failures than maxInFlight / batchSize, which would leave no room if the permits leaked
+        partitions.failures.set(10);
+
+        queue.onStart(null);
+
+        assertTrue(processed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedJoinIsRetried() throws Exception {
+        partitions.joinFailures.set(2);
+
+        queue.onStart(null);
+
+        assertTrue(processed.await(5, TimeUnit.SECONDS));
+        assertEquals(3, partitions.joins.get());
+    }
+
+    private static class FlakyPartitions extends QueuePartitions {
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger joinFailures = new AtomicInteger();
+        private final AtomicInteger joins = new AtomicInteger();
+        private boolean delivered;
+
+        @Override
+        public void join() {
+            joins.incrementAndGet();
+            if (joinFailures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Connection is not available");
+            }
+        }
+
+        @Override
+        public void leave() {
+        }
+
+        @Override
+        public synchronized List<WebhookDelivery> claim(int limit) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Connection is not available");
+            }
+            if (delivered) {
+                return Collections.emptyList();
+            }
+            delivered = true;
+            return Collections.singletonList(new WebhookDelivery(1, "issues", "{}", 0, 1));
+        }
+    }
+}
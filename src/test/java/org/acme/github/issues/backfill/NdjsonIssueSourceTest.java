@@ -0,0 +1,73 @@
+package org.acme.github.issues.backfill;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.acme.github.issues.model.IssueEvent;
+import org.acme.github.issues.utils.GitHubIssueExtractorTest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NdjsonIssueSourceTest {
+
+    @Test
+    public void testReadsAndResumes() throws IOException {
+        JsonObject payload;
+        try (JsonReader reader = Json.createReader(new InputStreamReader(
+                GitHubIssueExtractorTest.class.getResourceAsStream("issue-edited.json"), StandardCharsets.UTF_8))) {
+            payload = reader.readObject();
+        }
+        String first = issue(payload, 1);
+        String second = issue(payload, 2);
+        String third = issue(payload, 3);
+
+        Path export = Files.createTempFile("issues", ".ndjson");
+        try {
+            Files.write(export, Arrays.asList(first, "", "{\"not\":\"an issue\"}", second, third),
+                    StandardCharsets.UTF_8);
+
+            try (IssueSource source = new NdjsonIssueSource(export)) {
+                assertEquals(1, source.next().getNumber());
+                assertThrows(IllegalArgumentException.class, source::next);
+                assertEquals(2, source.next().getNumber());
+                assertEquals(3, source.next().getNumber());
+                assertNull(source.next());
+            }
+
+            try (IssueSource source = new NdjsonIssueSource(export)) {
+                source.skip(3);
+                IssueEvent event = source.next();
+                assertEquals(3, event.getNumber());
+                assertEquals(4815162, event.getInstallationId());
+                assertNull(source.next());
+            }
+        } finally {
+            Files.delete(export);
+        }
+    }
+
+    @Test
+    public void testGeneratedSourceResumes() {
+        GeneratedIssueSource source = new GeneratedIssueSource(42, 10);
+        source.skip(8);
+        assertEquals(9, source.next().getNumber());
+        assertEquals(10, source.next().getNumber());
+        assertNull(source.next());
+    }
+
+    private static String issue(JsonObject payload, int number) {
+        return Json.createObjectBuilder(payload)
+                .add("issue", Json.createObjectBuilder(payload.getJsonObject("issue")).add("number", number))
+                .build()
+                .toString();
+    }
+}
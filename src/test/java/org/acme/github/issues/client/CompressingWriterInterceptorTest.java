@@ -0,0 +1,148 @@
+package org.acme.github.issues.client;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import org.acme.github.issues.utils.DecompressingReaderInterceptor;
+import org.apache.commons.io.IOUtils;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.plugins.interceptors.AcceptEncodingGZIPFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressingWriterInterceptorTest {
+
+    private HttpServer server;
+    private volatile String contentEncoding;
+    private volatile String receivedBody;
+    private volatile int receivedLength;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            byte[] raw;
+            try (InputStream in = exchange.getRequestBody()) {
+                raw = IOUtils.toByteArray(in);
+            }
+            receivedLength = raw.length;
+            InputStream body = new ByteArrayInputStream(raw);
+            if ("gzip".equals(contentEncoding)) {
+                body = new GZIPInputStream(body);
+            } else if ("deflate".equals(contentEncoding)) {
+                body = new InflaterInputStream(body);
+            }
+            receivedBody = IOUtils.toString(body, StandardCharsets.UTF_8);
+
+            // echo the body back, compressed if the client asked for it
+            byte[] response = receivedBody.getBytes(StandardCharsets.UTF_8);
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accept != null && accept.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (OutputStream out = new GZIPOutputStream(compressed)) {
+                    out.write(response);
+                }
+                response = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testSmallBodyIsSentAsIs() {
+        JsonObject body = Json.createObjectBuilder().add("query", "{ a }").build();
+
+        post(new CompressingWriterInterceptor(CompressingWriterInterceptor.GZIP, 1024), body);
+
+        assertNull(contentEncoding);
+        assertEquals(body.toString(), receivedBody);
+    }
+
+    @Test
+    public void testLargeBodyIsGzipped() {
+        JsonObject body = largeBody();
+
+        post(new CompressingWriterInterceptor(CompressingWriterInterceptor.GZIP, 1024), body);
+
+        assertEquals("gzip", contentEncoding);
+        assertEquals(body.toString(), receivedBody);
+        assertTrue(receivedLength < body.toString().length() / 10);
+    }
+
+    @Test
+    public void testLargeBodyIsDeflated() {
+        JsonObject body = largeBody();
+
+        post(new CompressingWriterInterceptor(CompressingWriterInterceptor.DEFLATE, 1024), body);
+
+        assertEquals("deflate", contentEncoding);
+        assertEquals(body.toString(), receivedBody);
+    }
+
+    @Test
+    public void testCompressedResponseIsInflated() {
+        JsonObject body = largeBody();
+        Client client = ResteasyClientBuilder.newBuilder()
+                .register(AcceptEncodingGZIPFilter.class)
+                .register(new DecompressingReaderInterceptor(Long.MAX_VALUE))
+                .build();
+        try {
+            JsonObject response = client.target("http://localhost:" + server.getAddress().getPort())
+                    .request()
+                    .post(Entity.json(body), JsonObject.class);
+            assertEquals(body, response);
+        } finally {
+            client.close();
+        }
+    }
+
+    private void post(CompressingWriterInterceptor interceptor, JsonObject body) {
+        Client client = ResteasyClientBuilder.newBuilder().register(interceptor).build();
+        try {
+            client.target("http://localhost:" + server.getAddress().getPort())
+                    .request()
+                    .post(Entity.json(body))
+                    .close();
+        } finally {
+            client.close();
+        }
+    }
+
+    private static JsonObject largeBody() {
+        String markdown = String.join("\n", Collections.nCopies(500, "- [ ] a task in a long issue body"));
+        return Json.createObjectBuilder()
+                .add("query", "mutation AddGitHubIssue($data: Json) { addGitHubIssue(data: $data) { id } }")
+                .add("variables", Json.createObjectBuilder().add("body", markdown))
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package org.acme.github.issues.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class InstallationsTest {
+
+    @Test
+    public void testLookupByInstallationId() {
+        Map<String, AppConfig> configs = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            configs.put("account-" + i, new AppConfig("github-" + i, 1000 + i * 7));
+        }
+
+        Installations installations = new Installations(configs);
+
+        assertEquals(5000, installations.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("account-" + i, installations.getAccount(1000 + i * 7));
+        }
+        assertNull(installations.getAccount(1001));
+        assertNull(installations.getAccount(0));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertNull(Installations.EMPTY.getAccount(42));
+        assertEquals(0, Installations.EMPTY.size());
+    }
+}
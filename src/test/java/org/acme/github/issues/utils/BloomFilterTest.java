@@ -0,0 +1,52 @@
+package org.acme.github.issues.utils;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testAddedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("delivery-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("delivery-" + i));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateAtCapacity() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(UUID.randomUUID().toString());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testSizing() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+        assertEquals(7, filter.getHashes());
+        assertTrue(filter.getBits() >= 9_585_059);
+    }
+
+    @Test
+    public void testClear() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.add("a");
+        filter.clear();
+        assertFalse(filter.mightContain("a"));
+    }
+}
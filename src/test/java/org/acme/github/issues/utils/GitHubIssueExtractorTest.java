@@ -0,0 +1,62 @@
+package org.acme.github.issues.utils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.acme.github.issues.model.IssueEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GitHubIssueExtractorTest {
+
+    @Test
+    public void testStreamingMappingMatchesTreeMapping() throws IOException {
+        JsonObject payload;
+        try (JsonReader reader = Json.createReader(fixture("issue-edited.json"))) {
+            payload = reader.readObject();
+        }
+
+        IssueEvent event;
+        try (Reader reader = fixture("issue-edited.json")) {
+            event = GitHubIssueExtractor.extract(reader);
+        }
+
+        assertEquals("edited", event.getAction());
+        assertEquals(4815162, event.getInstallationId());
+        assertEquals(2, event.getAssignees().size());
+        assertEquals(TreeIssueMapping.buildV3Key(payload), GitHubIssueMapper.buildV3Key(event));
+        assertEquals(TreeIssueMapping.getV3UpdatedAt(payload), GitHubIssueMapper.getV3UpdatedAt(event));
+        assertEquals(TreeIssueMapping.mapV3Issue(payload), GitHubIssueMapper.mapV3Issue(event));
+    }
+
+    @Test
+    public void testKeyOnlyExtractionMatchesFullExtraction() throws IOException {
+        IssueEvent event;
+        try (Reader reader = fixture("issue-edited.json")) {
+            event = GitHubIssueExtractor.extract(reader);
+        }
+
+        try (Reader reader = fixture("issue-edited.json")) {
+            assertEquals(GitHubIssueMapper.buildV3Key(event), new GitHubIssueMapper().extractKey(reader));
+        }
+    }
+
+    @Test
+    public void testRejectsNonIssuePayload() {
+        String push = "{\"ref\":\"refs/heads/master\",\"commits\":[{\"id\":\"abc\"}],\"installation\":{\"id\":1}}";
+
+        assertThrows(IllegalArgumentException.class, () -> GitHubIssueExtractor.extract(new StringReader(push)));
+        assertThrows(IllegalArgumentException.class, () -> GitHubIssueExtractor.extractKey(new StringReader(push)));
+    }
+
+    private static Reader fixture(String name) {
+        return new InputStreamReader(GitHubIssueExtractorTest.class.getResourceAsStream(name), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package org.acme.github.issues.utils;
+
+import java.util.List;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.acme.github.issues.model.MutationResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GraphQLBatchTest {
+
+    @Test
+    public void testRequestAliasesEveryMutation() {
+        GraphQLBatch batch = new GraphQLBatch();
+        batch.add("github_issues", "1:a", Json.createObjectBuilder().add("title", "a").build());
+        batch.update("github_issue_comments", "id-b", Json.createObjectBuilder().add("title", "b").build());
+
+        JsonObject request = batch.toRequest();
+        String query = request.getString("query");
+
+        assertEquals(2, batch.size());
+        assertTrue(query.contains("$key0: String!, $data0: JsonObject!, $id1: ID!, $data1: Json!"));
+        assertTrue(query.contains("m0: data(type: \"github_issues\")"));
+        assertTrue(query.contains("add(input: {key: $key0, data: $data0})"));
+        assertTrue(query.contains("m1: data(type: \"github_issue_comments\")"));
+        assertTrue(query.contains("update(input: {id: $id1, data: $data1})"));
+        assertEquals("1:a", request.getJsonObject("variables").getString("key0"));
+        assertEquals("id-b", request.getJsonObject("variables").getString("id1"));
+    }
+
+    @Test
+    public void testResultsAreRoutedByAlias() {
+        GraphQLBatch batch = new GraphQLBatch();
+        batch.add("github_issues", "1:a", Json.createObjectBuilder().build());
+        batch.add("github_issues", "1:b", Json.createObjectBuilder().build());
+        batch.update("github_issues", "id-c", Json.createObjectBuilder().build());
+
+        JsonObject response = Json.createObjectBuilder()
+                .add("data", Json.createObjectBuilder()
+                        .add("m0", Json.createObjectBuilder()
+                                .add("add", Json.createObjectBuilder()
+                                        .add("data", Json.createObjectBuilder().add("id", "id-a"))))
+                        .addNull("m1")
+                        .add("m2", Json.createObjectBuilder()
+                                .add("update", Json.createObjectBuilder()
+                                        .add("data", Json.createObjectBuilder().add("id", "id-c")))))
+                .add("errors", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("message", "already exists")
+                                .add("path", Json.createArrayBuilder().add("m1").add("add"))))
+                .build();
+
+        List<MutationResult> results = batch.results(response);
+
+        assertEquals(3, results.size());
+        assertEquals("id-a", results.get(0).getId());
+        assertFalse(results.get(0).hasErrors());
+        assertNull(results.get(1).getId());
+        assertEquals("already exists", results.get(1).getErrors().getJsonObject(0).getString("message"));
+        assertEquals("id-c", results.get(2).getId());
+        assertFalse(results.get(2).hasErrors());
+    }
+
+    @Test
+    public void testErrorsWithoutPathApplyToEveryMutation() {
+        GraphQLBatch batch = new GraphQLBatch();
+        batch.add("github_issues", "1:a", Json.createObjectBuilder().build());
+        batch.add("github_issues", "1:b", Json.createObjectBuilder().build());
+
+        JsonObject response = Json.createObjectBuilder()
+                .addNull("data")
+                .add("errors", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder().add("message", "unauthorized")))
+                .build();
+
+        List<MutationResult> results = batch.results(response);
+
+        assertTrue(results.get(0).hasErrors());
+        assertTrue(results.get(1).hasErrors());
+    }
+}
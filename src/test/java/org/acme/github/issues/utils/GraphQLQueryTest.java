@@ -0,0 +1,56 @@
+package org.acme.github.issues.utils;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GraphQLQueryTest {
+    private static final String QUERY = "query getGithubIssue($key:String!) {\n"
+            + "    gitHubIssues(where:{key:$key}) {\n"
+            + "        nodes {\n"
+            + "            id\n"
+            + "        }\n"
+            + "    }\n"
+            + "}";
+
+    @Test
+    public void testParseReadsOperationName() {
+        assertEquals("getGithubIssue", GraphQLQuery.parse(QUERY).getOperationName());
+        assertEquals("addData", GraphQLQuery.parse("mutation addData($key: String!) { add(key: $key) { id } }")
+                .getOperationName());
+    }
+
+    @Test
+    public void testParseRejectsMalformedDocuments() {
+        assertThrows(IllegalArgumentException.class, () -> GraphQLQuery.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> GraphQLQuery.parse("{ gitHubIssues { id } }"));
+        assertThrows(IllegalArgumentException.class, () -> GraphQLQuery.parse("query q { gitHubIssues { id }"));
+        assertThrows(IllegalArgumentException.class, () -> GraphQLQuery.parse("query q { a } query r { b }"));
+    }
+
+    @Test
+    public void testSha256() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", GraphQLQuery.sha256("abc"));
+    }
+
+    @Test
+    public void testPersistedRequestCarriesIdInsteadOfText() {
+        GraphQLQuery query = GraphQLQuery.parse(QUERY);
+        JsonObject variables = Json.createObjectBuilder().add("key", "1:a").build();
+
+        JsonObject request = query.toPersistedRequest(variables, false);
+        assertFalse(request.containsKey("query"));
+        assertEquals("getGithubIssue", request.getString("operationName"));
+        assertEquals(variables, request.getJsonObject("variables"));
+        JsonObject persisted = request.getJsonObject("extensions").getJsonObject("persistedQuery");
+        assertEquals(1, persisted.getInt("version"));
+        assertEquals(GraphQLQuery.sha256(QUERY), persisted.getString("sha256Hash"));
+
+        assertEquals(QUERY, query.toPersistedRequest(variables, true).getString("query"));
+        assertEquals(QUERY, query.toRequest(variables).getString("query"));
+    }
+}
@@ -0,0 +1,41 @@
+package org.acme.github.issues.utils;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class JsonHashTest {
+
+    @Test
+    public void testIndependentOfMemberOrder() {
+        JsonObject a = Json.createObjectBuilder()
+                .add("title", "Bug")
+                .add("number", 7)
+                .add("assignees", Json.createArrayBuilder().add("x").add("y"))
+                .build();
+        JsonObject b = Json.createObjectBuilder()
+                .add("assignees", Json.createArrayBuilder().add("x").add("y"))
+                .add("number", 7)
+                .add("title", "Bug")
+                .build();
+
+        assertEquals(JsonHash.hash(a), JsonHash.hash(b));
+    }
+
+    @Test
+    public void testDetectsChanges() {
+        JsonObject issue = Json.createObjectBuilder().add("title", "Bug").add("body", "").build();
+
+        assertNotEquals(JsonHash.hash(issue),
+                JsonHash.hash(Json.createObjectBuilder(issue).add("title", "Bug!").build()));
+        assertNotEquals(JsonHash.hash(issue),
+                JsonHash.hash(Json.createObjectBuilder(issue).add("body", JsonObject.NULL).build()));
+        assertNotEquals(JsonHash.hash(Json.createArrayBuilder().add("ab").add("c").build()),
+                JsonHash.hash(Json.createArrayBuilder().add("a").add("bc").build()));
+        assertNotEquals(JsonHash.hash(Json.createArrayBuilder().add(Json.createArrayBuilder()).build()),
+                JsonHash.hash(Json.createArrayBuilder().add(Json.createObjectBuilder()).build()));
+    }
+}
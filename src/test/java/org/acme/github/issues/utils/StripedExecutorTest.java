@@ -0,0 +1,100 @@
+package org.acme.github.issues.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StripedExecutorTest {
+
+    private ExecutorService pool;
+
+    @BeforeEach
+    public void setup() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void teardown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testSameKeyWaitsForPreviousFuture() throws Exception {
+        StripedExecutor lanes = new StripedExecutor(16, 10, pool);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+
+        CompletableFuture<Void> first = lanes.submit("1:a", () -> {
+            order.add("first");
+            return gate;
+        });
+        CompletableFuture<Void> second = lanes.submit("1:a", () -> {
+            order.add("second");
+            return CompletableFuture.completedFuture(null);
+        });
+
+        Thread.sleep(50);
+        assertEquals(Collections.singletonList("first"), order);
+        assertFalse(second.isDone());
+
+        gate.complete(null);
+        second.get(1, TimeUnit.SECONDS);
+        assertTrue(first.isDone());
+        assertEquals(Arrays.asList("first", "second"), order);
+    }
+
+    @Test
+    public void testOtherLanesRunConcurrently() throws Exception {
+        StripedExecutor lanes = new StripedExecutor(2, 10, pool);
+        String other = "1:a";
+        for (int i = 0; lanes.laneOf(other) == lanes.laneOf("1:b"); i++) {
+            other = "1:" + i;
+        }
+
+        lanes.submit("1:b", CompletableFuture::new);
+        assertEquals("done", lanes.submit(other, () -> CompletableFuture.completedFuture("done"))
+                .get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedTaskDoesNotBlockLane() throws Exception {
+        StripedExecutor lanes = new StripedExecutor(1, 10, pool);
+
+        CompletableFuture<String> failed = lanes.submit("1:a", () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<String> next = lanes.submit("1:a", () -> CompletableFuture.completedFuture("next"));
+
+        assertEquals("next", next.get(1, TimeUnit.SECONDS));
+        assertTrue(failed.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testFullLaneRejects() throws Exception {
+        StripedExecutor lanes = new StripedExecutor(1, 2, pool);
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+
+        lanes.submit("1:a", () -> gate);
+        CompletableFuture<Void> queued = lanes.submit("1:b", () -> CompletableFuture.completedFuture(null));
+        assertThrows(RejectedExecutionException.class,
+                () -> lanes.submit("1:c", () -> CompletableFuture.completedFuture(null)));
+
+        gate.complete(null);
+        queued.get(1, TimeUnit.SECONDS);
+        lanes.submit("1:c", () -> CompletableFuture.completedFuture(null)).get(1, TimeUnit.SECONDS);
+    }
+}
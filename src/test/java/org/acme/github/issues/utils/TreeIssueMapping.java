@@ -0,0 +1,59 @@
+package org.acme.github.issues.utils;
+
+import java.time.Instant;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+/**
+ * The original mapping of a fully parsed {@code issues} payload, kept as the reference {@link GitHubIssueMapper} must
+ * agree with and as the baseline of the mapper benchmarks.
+ */
+public final class TreeIssueMapping {
+
+    private TreeIssueMapping() {
+    }
+
+    public static String buildV3Key(JsonObject payload) {
+        return String.format("%s:%s",
+                payload.getJsonObject("installation").getJsonNumber("id"),
+                payload.getJsonObject("issue").getString("node_id"));
+    }
+
+    public static long getV3UpdatedAt(JsonObject payload) {
+        return Instant.parse(payload.getJsonObject("issue").getString("updated_at")).toEpochMilli();
+    }
+
+    public static JsonObject mapV3Issue(JsonObject payload) {
+        JsonObject issue = payload.getJsonObject("issue");
+        JsonObject repository = payload.getJsonObject("repository");
+        JsonObject user = issue.getJsonObject("user");
+
+        JsonArrayBuilder assignees = Json.createArrayBuilder();
+        issue.getJsonArray("assignees").forEach(assignee -> {
+            assignees.add(Json.createObjectBuilder()
+                .add("id", assignee.asJsonObject().getJsonNumber("id"))
+                .add("nodeId", assignee.asJsonObject().getString("node_id"))
+                .build());
+        });
+
+        return Json.createObjectBuilder()
+                .add("id", issue.getJsonNumber("id"))
+                .add("nodeId", issue.getString("node_id"))
+                .add("repository", Json.createObjectBuilder()
+                    .add("id", repository.getJsonNumber("id"))
+                    .add("nodeId", repository.getString("node_id"))
+                    .build())
+                .add("author", Json.createObjectBuilder()
+                    .add("login", user.getString("login"))
+                    .build())
+                .add("assignees", assignees)
+                .add("body", issue.getString("body"))
+                .add("state", issue.getString("state").toUpperCase())
+                .add("number", issue.getJsonNumber("number"))
+                .add("title", issue.getString("title"))
+                .add("updatedAt", issue.getString("updated_at"))
+                .add("publishedAt", issue.getString("created_at"))
+                .build();
+    }
+}